@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.Extension;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.TestTemplateInvocationContext;
+import org.junit.jupiter.api.extension.TestTemplateInvocationContextProvider;
+import org.springframework.beans.BeanInstantiationException;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.test.context.TestSecurityContextHolder;
+import org.springframework.security.test.context.support.WithSecurityContext;
+import org.springframework.security.test.context.support.WithSecurityContextFactory;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.SpringSecurityTestBootstrapUtils;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A JUnit Jupiter extension providing an invocation of a {@link MultiUserTest} template for each mock/test user
+ * found on the test method and its test class, including those expanded by a {@link WithUserVariants} factory.
+ * The SecurityContext of the mock/test user is established for the thread running the invocation before the
+ * {@code @BeforeEach} methods and cleared after the {@code @AfterEach} methods, so invocations can run in parallel.
+ * <p>
+ * The mock/test users of a test method are resolved once and kept in the {@link ExtensionContext.Store} of the
+ * test method.  As with {@link MultiUserRule}, WithSecurityContextFactory and WithUserVariantsFactory instances are
+ * autowired with the ApplicationContext of a test class annotated with {@code @ContextConfiguration}, which is
+ * shared with the Spring runners through the context cache, so user annotations requiring beans, such as
+ * {@link WithUserDetails}, are supported; they are kept in the Store of the test class.  Otherwise factories are
+ * instantiated with their no-argument constructor and kept in the root Store, shared by all test classes.
+ * </p>
+ */
+public class MultiUserExtension implements TestTemplateInvocationContextProvider {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(MultiUserExtension.class);
+
+    private static final String USERS_KEY = "users";
+
+    /**
+     * Check whether the test template has mock/test users.
+     * @param context The context of the test template.
+     * @return true if the test method or test class is annotated with mock/test users.
+     */
+    @Override
+    public boolean supportsTestTemplate(ExtensionContext context) {
+        return !getUsers(context).isEmpty();
+    }
+
+    /**
+     * Provide an invocation of the test template for each mock/test user.
+     * @param context The context of the test template.
+     * @return The invocation contexts.
+     */
+    @Override
+    public Stream<TestTemplateInvocationContext> provideTestTemplateInvocationContexts(ExtensionContext context) {
+        return getUsers(context).stream().map(UserInvocationContext::new);
+    }
+
+    /**
+     * Retrieve the mock/test users of the test method, resolving them on first use.
+     * @param context The context of the test template.
+     * @return The annotations of the individual mock/test users.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Annotation> getUsers(ExtensionContext context) {
+        return context.getStore(NAMESPACE).getOrComputeIfAbsent(USERS_KEY, key -> resolveUsers(context), List.class);
+    }
+
+    /**
+     * Find the mock/test users of the test class and test method and expand those marked with
+     * {@link WithUserVariants}.
+     * @param context The context of the test template.
+     * @return The annotations of the individual mock/test users.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Annotation> resolveUsers(ExtensionContext context) {
+        List<Annotation> userAnnotations = new ArrayList<>();
+        context.getTestClass().ifPresent(testClass -> userAnnotations.addAll(UserAnnotations.find(testClass.getAnnotations())));
+        Method testMethod = context.getRequiredTestMethod();
+        userAnnotations.addAll(UserAnnotations.find(testMethod.getAnnotations()));
+
+        List<Annotation> retVal = new ArrayList<>();
+        for (Annotation userAnnotation : userAnnotations) {
+            WithUserVariants withUserVariants = userAnnotation.annotationType().getAnnotation(WithUserVariants.class);
+            if (withUserVariants != null) {
+                WithUserVariantsFactory factory = getFactory(context, withUserVariants.factory());
+                Iterator<Annotation> variants = factory.createUserVariants(userAnnotation);
+                while (variants.hasNext()) {
+                    retVal.add(variants.next());
+                }
+            } else {
+                retVal.add(userAnnotation);
+            }
+        }
+        return Collections.unmodifiableList(retVal);
+    }
+
+    /**
+     * Retrieve the shared instance of a factory, autowiring it with the ApplicationContext of the test class on first
+     * use if the test class is annotated with {@code @ContextConfiguration}, or constructing it with its no-argument
+     * constructor otherwise.
+     * @param context Any extension context of the test class.
+     * @param clazz The factory class.
+     * @param <T> The type of the factory.
+     * @return The instance.
+     * @throws IllegalStateException if the factory cannot be constructed without an ApplicationContext.
+     */
+    private static <T> T getFactory(ExtensionContext context, Class<T> clazz) {
+        Class<?> testClass = context.getRequiredTestClass();
+        if (AnnotationUtils.findAnnotation(testClass, ContextConfiguration.class) != null) {
+            ExtensionContext.Store store = getClassContext(context).getStore(NAMESPACE);
+            return store.getOrComputeIfAbsent(clazz, factoryClass -> {
+                //the bootstrapped TestContext shares the context cache with SpringClassRule and the Spring runners
+                ApplicationContext applicationContext = store.getOrComputeIfAbsent(ApplicationContext.class,
+                        key -> SpringSecurityTestBootstrapUtils.resolveTestContextBootstrapper(
+                                SpringSecurityTestBootstrapUtils.createBootstrapContext(testClass)).buildTestContext().getApplicationContext(),
+                        ApplicationContext.class);
+                return applicationContext.getAutowireCapableBeanFactory().createBean(clazz);
+            }, clazz);
+        }
+
+        return context.getRoot().getStore(NAMESPACE).getOrComputeIfAbsent(clazz, factoryClass -> {
+            try {
+                return BeanUtils.instantiateClass(clazz);
+            } catch (BeanInstantiationException e) {
+                throw new IllegalStateException(clazz.getName() + " cannot be constructed without an ApplicationContext", e);
+            }
+        }, clazz);
+    }
+
+    /**
+     * Find the extension context of the test class containing the provided extension context.
+     * @param context Any extension context of the test class.
+     * @return The extension context of the test class.
+     */
+    private static ExtensionContext getClassContext(ExtensionContext context) {
+        ExtensionContext retVal = context;
+        while (retVal.getTestMethod().isPresent() && retVal.getParent().isPresent()) {
+            retVal = retVal.getParent().get();
+        }
+        return retVal;
+    }
+
+    /**
+     * The invocation of a test template for a mock/test user.
+     */
+    private static class UserInvocationContext implements TestTemplateInvocationContext {
+        private final Annotation user;
+
+        /**
+         * Construct a new instance.
+         * @param user The annotation representing the mock/test user.
+         */
+        private UserInvocationContext(Annotation user) {
+            this.user = user;
+        }
+
+        /**
+         * Name the invocation after the mock/test user.
+         * @param invocationIndex The index of the invocation.
+         * @return The display name.
+         */
+        @Override
+        public String getDisplayName(int invocationIndex) {
+            return user.toString();
+        }
+
+        /**
+         * Provide the callbacks establishing the SecurityContext of the mock/test user.
+         * @return The extensions of the invocation.
+         */
+        @Override
+        public List<Extension> getAdditionalExtensions() {
+            return Collections.singletonList(new SecurityContextCallbacks(user));
+        }
+    }
+
+    /**
+     * Establishes the SecurityContext of a mock/test user for the thread running an invocation.
+     */
+    private static class SecurityContextCallbacks implements BeforeEachCallback, AfterEachCallback {
+        private final Annotation user;
+
+        /**
+         * Construct a new instance.
+         * @param user The annotation representing the mock/test user.
+         */
+        private SecurityContextCallbacks(Annotation user) {
+            this.user = user;
+        }
+
+        /**
+         * Establish the SecurityContext of the mock/test user before the {@code @BeforeEach} methods.
+         * @param context The context of the invocation.
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public void beforeEach(ExtensionContext context) {
+            WithSecurityContext withSecurityContext = user.annotationType().getAnnotation(WithSecurityContext.class);
+            WithSecurityContextFactory factory = getFactory(context, withSecurityContext.factory());
+
+            SecurityContext securityContext = factory.createSecurityContext(user);
+            TestSecurityContextHolder.setContext(securityContext != null ? securityContext : SecurityContextHolder.createEmptyContext());
+        }
+
+        /**
+         * Clear the SecurityContext after the {@code @AfterEach} methods.
+         * @param context The context of the invocation.
+         */
+        @Override
+        public void afterEach(ExtensionContext context) {
+            TestSecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Contains test cases that validate usage of @MultiUserTest.
+ */
+@Execution(ExecutionMode.CONCURRENT)
+@WithMockUser("classUser")
+class MultiUserExtensionTests {
+
+    private static final Set<String> usernames = Collections.synchronizedSet(new HashSet<>());
+
+    private static final Set<String> threads = Collections.synchronizedSet(new HashSet<>());
+
+    //the invocations of testEachUserIsAnInvocation for classUser, user1 and user2 must all reach the barrier
+    private static final CyclicBarrier invocations = new CyclicBarrier(3);
+
+    private String setUpUsername;
+
+    @BeforeEach
+    void setUp() {
+        setUpUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+    }
+
+    @MultiUserTest
+    @WithMockUser("user1")
+    @WithMockUser("user2")
+    void testEachUserIsAnInvocation() throws Exception {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        threads.add(Thread.currentThread().getName());
+
+        //times out unless the invocations of the other users are running at the same time
+        invocations.await(10, TimeUnit.SECONDS);
+
+        assertEquals(setUpUsername, username);
+        assertEquals(username, SecurityContextHolder.getContext().getAuthentication().getName());
+        usernames.add(username);
+    }
+
+    @MultiUserTest
+    @WithMockUserMatrix(username = "matrix", roles = {"A", "B"})
+    void testUserVariantsAreExpanded() {
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        usernames.add(SecurityContextHolder.getContext().getAuthentication().getName());
+    }
+
+    @AfterAll
+    static void verifyUsers() {
+        assertTrue(usernames.containsAll(Arrays.asList("classUser", "user1", "user2", "matrix")));
+        //the invocations of testEachUserIsAnInvocation ran in parallel
+        assertEquals(3, threads.size());
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Contains test cases that validate usage of @MultiUserTest with mock/test users requiring an ApplicationContext.
+ */
+@Execution(ExecutionMode.CONCURRENT)
+@ContextConfiguration(classes = {MultiUserExtensionUserDetailsTests.UserDetailsConfiguration.class})
+class MultiUserExtensionUserDetailsTests {
+
+    @MultiUserTest
+    @WithUserDetails("admin")
+    @WithUserDetails("user")
+    void testUserDetailsAreLoadedFromTheApplicationContext() {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        GrantedAuthority authority = SecurityContextHolder.getContext().getAuthentication().getAuthorities().iterator().next();
+
+        assertEquals("admin".equals(username) ? "ROLE_ADMIN" : "ROLE_USER", authority.getAuthority());
+    }
+
+    /**
+     * Configuration providing the UserDetailsService used by @WithUserDetails.
+     */
+    @Configuration
+    static class UserDetailsConfiguration {
+
+        /**
+         * Provide the users of the test.
+         * @return The instance of UserDetailsService.
+         */
+        @Bean
+        public UserDetailsService userDetailsService() {
+            return new InMemoryUserDetailsManager(Arrays.asList(
+                    new User("admin", "password", AuthorityUtils.createAuthorityList("ROLE_ADMIN")),
+                    new User("user", "password", AuthorityUtils.createAuthorityList("ROLE_USER"))));
+        }
+    }
+}
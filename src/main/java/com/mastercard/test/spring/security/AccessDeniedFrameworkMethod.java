@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.runners.model.FrameworkMethod;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * An {@link AnnotationFrameworkMethod} representing a mock/test user that is expected to be denied access,
+ * as generated for {@link WithOtherRolesDenied}.  {@link SpringSecurityJUnit4ClassRunner} expects these
+ * tests to throw an {@link org.springframework.security.access.AccessDeniedException}.
+ * @param <T> Any annotation to append to the FrameworkMethod.
+ */
+public class AccessDeniedFrameworkMethod<T extends Annotation> extends AnnotationFrameworkMethod<T> {
+
+    /**
+     * Construct a new instance to wrap the provided FrameworkMethod.
+     * @param method The FrameworkMethod to wrap.
+     * @param annotation The annotation to append to the method.
+     * @throws IllegalArgumentException if the annotation provided is null.
+     */
+    public AccessDeniedFrameworkMethod(FrameworkMethod method, T annotation) {
+        super(method, annotation);
+    }
+
+    /**
+     * Provide a text representation of the instance.
+     * @return A text representation of the instance.
+     */
+    @Override
+    public String toString() {
+        return super.toString() + " denied";
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.TestContext;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads the ApplicationContext of a test class on a background thread, see {@link WarmUpApplicationContext}.
+ * Warm-ups are queued in the order the runners are created and the next one is only started when a test class
+ * starts running, by {@link #startNext()}, so that at most one context is loaded ahead of the test class using it
+ * rather than every context of a suite.  The contexts are loaded by a single daemon thread.  Failures are ignored,
+ * as the runner loads the context again and reports them.
+ */
+final class ApplicationContextWarmUp {
+
+    /**
+     * The name of the thread loading the contexts.
+     */
+    static final String THREAD_NAME = "spring-security-test-context-warm-up";
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, THREAD_NAME);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Queue<ApplicationContextWarmUp> PENDING = new ConcurrentLinkedQueue<>();
+
+    private final TestContext testContext;
+
+    private final ClassLoader classLoader;
+
+    private Future<?> future;
+
+    /**
+     * Queue loading the ApplicationContext of the TestContext until the test class run before it starts.
+     * @param testContext The TestContext of the test class.
+     */
+    ApplicationContextWarmUp(TestContext testContext) {
+        this.testContext = testContext;
+        this.classLoader = Thread.currentThread().getContextClassLoader();
+        PENDING.add(this);
+    }
+
+    /**
+     * Determine whether the ApplicationContext of a test class should be warmed up.  A context that the test
+     * class dirties before its first test method would be discarded, so it is not warmed up.
+     * @param testClass The test class.
+     * @return true if the test class is annotated with {@link WarmUpApplicationContext} and does not dirty
+     * its ApplicationContext before running.
+     */
+    static boolean isEnabled(Class<?> testClass) {
+        if (!testClass.isAnnotationPresent(WarmUpApplicationContext.class)) {
+            return false;
+        }
+
+        DirtiesContext dirtiesContext = AnnotationUtils.findAnnotation(testClass, DirtiesContext.class);
+        return dirtiesContext == null || (dirtiesContext.classMode() != ClassMode.BEFORE_CLASS
+                && dirtiesContext.classMode() != ClassMode.BEFORE_EACH_TEST_METHOD);
+    }
+
+    /**
+     * Start loading the ApplicationContext of the next queued warm-up, if any.  Called when a test class starts
+     * running, so that the context of the next test class is loaded while it runs.
+     */
+    static void startNext() {
+        ApplicationContextWarmUp next = PENDING.poll();
+        if (next != null) {
+            next.start();
+        }
+    }
+
+    /**
+     * Start loading the ApplicationContext on the background thread.
+     */
+    synchronized void start() {
+        if (future != null) {
+            return;
+        }
+
+        future = EXECUTOR.submit(() -> {
+            Thread thread = Thread.currentThread();
+            ClassLoader previous = thread.getContextClassLoader();
+            thread.setContextClassLoader(classLoader);
+            try {
+                testContext.getApplicationContext();
+            } catch (RuntimeException e) {
+                //reported when the runner loads the context
+            } finally {
+                thread.setContextClassLoader(previous);
+            }
+        });
+    }
+
+    /**
+     * Wait for the ApplicationContext to be loaded, unless loading has not started yet, in which case it is
+     * no longer queued and is left to the caller.
+     */
+    void await() {
+        PENDING.remove(this);
+
+        Future<?> started;
+        synchronized (this) {
+            started = future;
+        }
+        if (started != null && !started.cancel(false)) {
+            try {
+                started.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                //reported when the runner loads the context
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationListener;
+import org.springframework.security.access.event.AbstractAuthorizationEvent;
+import org.springframework.security.access.event.AuthorizationFailureEvent;
+import org.springframework.security.access.event.AuthorizedEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.web.FilterInvocation;
+
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeSet;
+
+/**
+ * Records the access decisions published as AuthorizedEvent and AuthorizationFailureEvent, by the security
+ * interceptors or by {@link VerifyAuthorization}, to an append-only file while the tests are run.  Add it
+ * to the test's context configuration; {@link AuthorizationCoverageReport} merges the files written by all
+ * test JVMs into a role &times; resource coverage matrix.
+ * <p>
+ * Each line of the file is tab separated.  Role sets and resources are written once as a definition
+ * ({@code =<id> <value>}) and access decisions refer to them by id ({@code G <roles> <resource>} when
+ * granted, {@code D <roles> <resource>} when denied).  Each recorder writes its own file, so ids are only
+ * meaningful within a file.
+ * </p>
+ * <p>
+ * Note that interceptors only publish AuthorizedEvent when configured with
+ * {@code setPublishAuthorizationSuccess(true)}.
+ * </p>
+ */
+public class AuthorizationCoverageRecorder implements ApplicationListener<AbstractAuthorizationEvent>, Flushable, DisposableBean {
+
+    /**
+     * System property specifying the directory the coverage files are written to.
+     */
+    public static final String DIRECTORY_PROPERTY = "mastercard.security.test.coverage.directory";
+
+    /**
+     * The directory the coverage files are written to when the system property is not specified.
+     */
+    public static final String DEFAULT_DIRECTORY = "build/authorization-coverage";
+
+    static final String HEADER = "#authorization-coverage 1";
+
+    private final Path file;
+    private final BufferedWriter writer;
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    /**
+     * Create a recorder writing a new file in the directory specified by {@link #DIRECTORY_PROPERTY}.
+     * @throws IOException if the file cannot be created.
+     */
+    public AuthorizationCoverageRecorder() throws IOException {
+        this(Paths.get(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY)));
+    }
+
+    /**
+     * Create a recorder writing a new file in the provided directory.
+     * @param directory The directory, which is created if necessary.
+     * @throws IOException if the file cannot be created.
+     */
+    public AuthorizationCoverageRecorder(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        file = Files.createTempFile(directory, "authorization-coverage-", ".log");
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        writer.write(HEADER);
+        writer.newLine();
+    }
+
+    /**
+     * @return The file the access decisions are written to.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void onApplicationEvent(AbstractAuthorizationEvent event) {
+        char decision;
+        Authentication authentication;
+        if (event instanceof AuthorizedEvent) {
+            decision = 'G';
+            authentication = ((AuthorizedEvent) event).getAuthentication();
+        } else if (event instanceof AuthorizationFailureEvent) {
+            decision = 'D';
+            authentication = ((AuthorizationFailureEvent) event).getAuthentication();
+        } else {
+            return;
+        }
+
+        try {
+            int roles = define(describeRoles(authentication));
+            int resource = define(describeResource(event.getSource()));
+            writer.write(decision + "\t" + roles + "\t" + resource);
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to record authorization coverage to " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public synchronized void destroy() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Look up the id of the value, writing its definition when it is first encountered.
+     * @param value The value.
+     * @return The id of the value.
+     * @throws IOException if the definition cannot be written.
+     */
+    private int define(String value) throws IOException {
+        Integer retVal = ids.get(value);
+        if (retVal == null) {
+            retVal = ids.size();
+            ids.put(value, retVal);
+            writer.write("=" + retVal + "\t" + value);
+            writer.newLine();
+        }
+        return retVal;
+    }
+
+    /**
+     * Describe the authorities of the Authentication as a sorted, semicolon separated role set.
+     * @param authentication The Authentication.
+     * @return The role set.
+     */
+    static String describeRoles(Authentication authentication) {
+        TreeSet<String> roles = new TreeSet<>();
+        if (authentication != null) {
+            for (GrantedAuthority authority : authentication.getAuthorities()) {
+                roles.add(authority.getAuthority());
+            }
+        }
+        return String.join(";", roles);
+    }
+
+    /**
+     * Describe the secured object, being a method or a URL.
+     * @param secureObject The secured object.
+     * @return The description of the secured object.
+     */
+    static String describeResource(Object secureObject) {
+        if (secureObject instanceof MethodInvocation) {
+            Method method = ((MethodInvocation) secureObject).getMethod();
+            StringJoiner parameters = new StringJoiner(",", method.getDeclaringClass().getName() + "." + method.getName() + "(", ")");
+            for (Class<?> parameterType : method.getParameterTypes()) {
+                parameters.add(parameterType.getSimpleName());
+            }
+            return parameters.toString();
+        }
+        if (secureObject instanceof FilterInvocation) {
+            return ((FilterInvocation) secureObject).getRequestUrl();
+        }
+        return String.valueOf(secureObject).replace('\t', ' ').replace('\n', ' ');
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Merges the files written by {@link AuthorizationCoverageRecorder} into a role &times; resource coverage
+ * matrix.  The files are streamed line by line, so only the matrix itself is held in memory.
+ * <p>
+ * The matrix is written as CSV with a row per resource and a column per role set, where each cell contains
+ * {@code G} if access was granted, {@code D} if access was denied, {@code GD} if both were recorded and is
+ * empty if the role set was never used to access the resource.
+ * </p>
+ * <pre>
+ * java com.mastercard.test.spring.security.AuthorizationCoverageReport coverage.csv build/authorization-coverage
+ * </pre>
+ */
+public class AuthorizationCoverageReport {
+
+    static final int GRANTED = 1;
+    static final int DENIED = 2;
+
+    private final SortedSet<String> roleSets = new TreeSet<>();
+    private final SortedMap<String, Map<String, Integer>> matrix = new TreeMap<>();
+
+    /**
+     * Merge the coverage files into a report and write it as CSV.
+     * @param args The CSV file to write, followed by the coverage files or directories containing them.
+     * @throws IOException if a file cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: AuthorizationCoverageReport <output.csv> <coverage file or directory>...");
+            System.exit(1);
+        }
+
+        AuthorizationCoverageReport report = new AuthorizationCoverageReport();
+        for (int i = 1; i < args.length; i++) {
+            report.merge(Paths.get(args[i]));
+        }
+        try (Writer writer = Files.newBufferedWriter(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            report.write(writer);
+        }
+    }
+
+    /**
+     * Merge a coverage file, or all coverage files of a directory, into the report.
+     * @param path The coverage file or directory.
+     * @throws IOException if a file cannot be read or is not a coverage file.
+     */
+    public void merge(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, "authorization-coverage-*.log")) {
+                stream.forEach(files::add);
+            }
+            files.sort(null);
+            for (Path file : files) {
+                merge(file);
+            }
+            return;
+        }
+
+        Map<String, String> definitions = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            if (!AuthorizationCoverageRecorder.HEADER.equals(reader.readLine())) {
+                throw new IOException(path + " is not an authorization coverage file");
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", 3);
+                if (line.startsWith("=")) {
+                    definitions.put(fields[0].substring(1), fields[1]);
+                } else if (fields.length == 3) {
+                    record(definitions.get(fields[1]), definitions.get(fields[2]), "G".equals(fields[0]) ? GRANTED : DENIED);
+                }
+            }
+        }
+    }
+
+    /**
+     * Record an access decision in the report.
+     * @param roles The role set.
+     * @param resource The resource.
+     * @param decision {@link #GRANTED} or {@link #DENIED}.
+     */
+    void record(String roles, String resource, int decision) {
+        roleSets.add(roles);
+        matrix.computeIfAbsent(resource, key -> new HashMap<>()).merge(roles, decision, (a, b) -> a | b);
+    }
+
+    /**
+     * Look up the access decisions recorded for the role set and resource.
+     * @param roles The role set, being the sorted, semicolon separated authorities.
+     * @param resource The resource.
+     * @return {@code G}, {@code D}, {@code GD} or an empty string if nothing was recorded.
+     */
+    public String getDecisions(String roles, String resource) {
+        int decisions = matrix.getOrDefault(resource, new HashMap<>()).getOrDefault(roles, 0);
+        return ((decisions & GRANTED) != 0 ? "G" : "") + ((decisions & DENIED) != 0 ? "D" : "");
+    }
+
+    /**
+     * Write the report as CSV.
+     * @param writer The writer.
+     * @throws IOException if the report cannot be written.
+     */
+    public void write(Writer writer) throws IOException {
+        writer.write("resource");
+        for (String roles : roleSets) {
+            writer.write("," + quote(roles));
+        }
+        writer.write("\n");
+
+        for (String resource : matrix.keySet()) {
+            writer.write(quote(resource));
+            for (String roles : roleSets) {
+                writer.write("," + getDecisions(roles, resource));
+            }
+            writer.write("\n");
+        }
+    }
+
+    private static String quote(String value) {
+        if (value.contains(",") || value.contains("\"")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
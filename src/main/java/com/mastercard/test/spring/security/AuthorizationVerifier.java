@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.event.AuthenticationCredentialsNotFoundEvent;
+import org.springframework.security.access.event.AuthorizationFailureEvent;
+import org.springframework.security.access.event.AuthorizedEvent;
+import org.springframework.security.access.intercept.aopalliance.MethodSecurityInterceptor;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Evaluates the method security of secured methods for an Authentication without invoking them, using the
+ * MethodSecurityInterceptor configured in an ApplicationContext, as used by {@link VerifyAuthorization}.
+ * Secured methods and the beans they are invoked on are resolved once per instance.  The access decisions
+ * are published to the ApplicationContext as AuthorizedEvent and AuthorizationFailureEvent, as the
+ * MethodSecurityInterceptor would when the method is invoked, so that they are recorded by
+ * {@link SecurityEventRecorder}.  A missing Authentication publishes an AuthenticationCredentialsNotFoundEvent,
+ * and an AuthenticationException thrown by the AccessDecisionManager is published as an AuthorizationFailureEvent,
+ * as access is denied either way.
+ */
+public class AuthorizationVerifier {
+
+    private final ApplicationContext context;
+    private final MethodSecurityInterceptor interceptor;
+    private final Map<VerifyAuthorization, Method> methods = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Optional<Object>> targets = new ConcurrentHashMap<>();
+
+    /**
+     * Construct a new instance for the MethodSecurityInterceptor of the provided ApplicationContext.
+     * @param context The ApplicationContext.
+     * @throws IllegalStateException if the ApplicationContext does not contain exactly one MethodSecurityInterceptor.
+     */
+    public AuthorizationVerifier(ApplicationContext context) {
+        Map<String, MethodSecurityInterceptor> interceptors = context.getBeansOfType(MethodSecurityInterceptor.class);
+        if (interceptors.size() != 1) {
+            throw new IllegalStateException("Expected a single MethodSecurityInterceptor, found " + interceptors.keySet());
+        }
+        this.context = context;
+        this.interceptor = interceptors.values().iterator().next();
+    }
+
+    /**
+     * Determine whether the Authentication is granted access to the secured method.
+     * @param authentication The Authentication, which may be null.
+     * @param verifyAuthorization The annotation identifying the secured method.
+     * @return True if access is granted, otherwise false.
+     */
+    public boolean isGranted(Authentication authentication, VerifyAuthorization verifyAuthorization) {
+        return isGranted(authentication, methods.computeIfAbsent(verifyAuthorization, this::findMethod), verifyAuthorization.type());
+    }
+
+    /**
+     * Determine whether the Authentication is granted access to the secured method.
+     * @param authentication The Authentication, which may be null.
+     * @param method The secured method.
+     * @param targetClass The class of the object the method would be invoked on.
+     * @return True if access is granted, otherwise false.
+     */
+    public boolean isGranted(Authentication authentication, Method method, Class<?> targetClass) {
+        Collection<ConfigAttribute> attributes = interceptor.getSecurityMetadataSource().getAttributes(method, targetClass);
+        if (attributes == null || attributes.isEmpty()) {
+            return !interceptor.isRejectPublicInvocations();
+        }
+
+        Object target = targets.computeIfAbsent(targetClass, this::findTarget).orElse(null);
+        SimpleMethodInvocation invocation = new SimpleMethodInvocation(target, method,
+                new Object[method.getParameterCount()]);
+        if (authentication == null) {
+            context.publishEvent(new AuthenticationCredentialsNotFoundEvent(invocation, attributes,
+                    new AuthenticationCredentialsNotFoundException("An Authentication object was not found in the SecurityContext")));
+            return false;
+        }
+
+        try {
+            interceptor.getAccessDecisionManager().decide(authentication, invocation, attributes);
+        } catch (AccessDeniedException e) {
+            context.publishEvent(new AuthorizationFailureEvent(invocation, attributes, authentication, e));
+            return false;
+        } catch (AuthenticationException e) {
+            context.publishEvent(new AuthorizationFailureEvent(invocation, attributes, authentication,
+                    new AccessDeniedException(e.getMessage(), e)));
+            return false;
+        }
+        context.publishEvent(new AuthorizedEvent(invocation, attributes, authentication));
+        return true;
+    }
+
+    /**
+     * Locate the secured method identified by the annotation.
+     * @param verifyAuthorization The annotation identifying the secured method.
+     * @return The method.
+     * @throws IllegalArgumentException if the method cannot be identified.
+     */
+    private Method findMethod(VerifyAuthorization verifyAuthorization) {
+        Method retVal = null;
+        int matches = 0;
+        for (Method method : verifyAuthorization.type().getMethods()) {
+            if (method.getName().equals(verifyAuthorization.method())) {
+                if (Arrays.equals(method.getParameterTypes(), verifyAuthorization.parameterTypes())) {
+                    return method;
+                }
+                retVal = method;
+                matches++;
+            }
+        }
+
+        if (matches > 1 || (matches == 1 && verifyAuthorization.parameterTypes().length > 0)) {
+            throw new IllegalArgumentException("Unable to resolve overloaded method " + verifyAuthorization.method() + " on "
+                    + verifyAuthorization.type().getName() + ", specify the parameterTypes");
+        }
+        if (retVal == null) {
+            throw new IllegalArgumentException("Unable to locate method " + verifyAuthorization.method() + " on "
+                    + verifyAuthorization.type().getName());
+        }
+        return retVal;
+    }
+
+    /**
+     * Locate the bean the method would be invoked on, so that expressions referring to the target can
+     * be evaluated.
+     * @param targetClass The class of the bean.
+     * @return The bean, or empty if the ApplicationContext does not contain exactly one.
+     */
+    private Optional<Object> findTarget(Class<?> targetClass) {
+        Map<String, ?> beans = context.getBeansOfType(targetClass);
+        return beans.size() == 1 ? Optional.of(beans.values().iterator().next()) : Optional.empty();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionHandler;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionOperations;
+import org.springframework.security.core.Authentication;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A test scoped MethodSecurityExpressionHandler that decorates another handler to avoid repeating work
+ * when the same security expressions are evaluated for the same mock/test user many times, for example by
+ * each test method run for that user.  A new evaluation context is created by the delegate for each
+ * invocation, so that the method arguments are those of the invocation, but its expression root is
+ * replaced by the one created for the first invocation by an equal Authentication on the same target.
+ * The expression root keeps the authorities it has resolved, including those reachable through a role
+ * hierarchy, so that they are not resolved again.  The filter and return objects of a reused expression root
+ * are cleared, as they belong to the invocation that set them.
+ * <p>
+ * Expression roots are kept for each thread, so that invocations run in parallel do not share them, and
+ * up to {@link #MAX_EXPRESSION_ROOTS} of them are kept per thread.
+ * </p>
+ */
+public class CachingMethodSecurityExpressionHandler implements MethodSecurityExpressionHandler {
+
+    /**
+     * The maximum number of expression roots kept for each thread; all are discarded once it is reached.
+     */
+    public static final int MAX_EXPRESSION_ROOTS = 256;
+
+    private final MethodSecurityExpressionHandler delegate;
+
+    private final ThreadLocal<Map<ExpressionRootKey, TypedValue>> expressionRoots = ThreadLocal.withInitial(HashMap::new);
+
+    private final AtomicLong createdExpressionRoots = new AtomicLong();
+    private final AtomicLong cachedExpressionRoots = new AtomicLong();
+
+    /**
+     * Create a new CachingMethodSecurityExpressionHandler.
+     * @param delegate The handler to decorate.
+     */
+    public CachingMethodSecurityExpressionHandler(MethodSecurityExpressionHandler delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ExpressionParser getExpressionParser() {
+        return delegate.getExpressionParser();
+    }
+
+    @Override
+    public EvaluationContext createEvaluationContext(Authentication authentication, MethodInvocation invocation) {
+        EvaluationContext retVal = delegate.createEvaluationContext(authentication, invocation);
+        if (!(retVal instanceof StandardEvaluationContext) || authentication == null) {
+            return retVal;
+        }
+
+        Map<ExpressionRootKey, TypedValue> roots = expressionRoots.get();
+        ExpressionRootKey key = new ExpressionRootKey(authentication, invocation.getThis());
+        TypedValue root = roots.get(key);
+        if (root != null) {
+            if (root.getValue() instanceof MethodSecurityExpressionOperations) {
+                ((MethodSecurityExpressionOperations) root.getValue()).setFilterObject(null);
+                ((MethodSecurityExpressionOperations) root.getValue()).setReturnObject(null);
+            }
+            ((StandardEvaluationContext) retVal).setRootObject(root.getValue(), root.getTypeDescriptor());
+            cachedExpressionRoots.incrementAndGet();
+        } else {
+            if (roots.size() >= MAX_EXPRESSION_ROOTS) {
+                roots.clear();
+            }
+            roots.put(key, retVal.getRootObject());
+            createdExpressionRoots.incrementAndGet();
+        }
+        return retVal;
+    }
+
+    @Override
+    public Object filter(Object filterTarget, Expression filterExpression, EvaluationContext ctx) {
+        return delegate.filter(filterTarget, filterExpression, ctx);
+    }
+
+    @Override
+    public void setReturnObject(Object returnObject, EvaluationContext ctx) {
+        delegate.setReturnObject(returnObject, ctx);
+    }
+
+    /**
+     * @return The MethodSecurityExpressionHandler being decorated.
+     */
+    public MethodSecurityExpressionHandler getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return The number of expression roots created by the delegate that have been kept.
+     */
+    public long getCreatedExpressionRootCount() {
+        return createdExpressionRoots.get();
+    }
+
+    /**
+     * @return The number of times a previously created expression root was reused.
+     */
+    public long getCachedExpressionRootCount() {
+        return cachedExpressionRoots.get();
+    }
+
+    @Override
+    public String toString() {
+        return "expression roots created=" + getCreatedExpressionRootCount() + ", reused=" + getCachedExpressionRootCount();
+    }
+
+    /**
+     * Identifies invocations that share an expression root.  The target is compared by identity, as the
+     * expression root refers to it.
+     */
+    private static final class ExpressionRootKey {
+        private final Authentication authentication;
+        private final Object target;
+
+        private ExpressionRootKey(Authentication authentication, Object target) {
+            this.authentication = authentication;
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            ExpressionRootKey that = (ExpressionRootKey) o;
+            return target == that.target && authentication.equals(that.authentication);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(authentication, System.identityHashCode(target));
+        }
+    }
+}
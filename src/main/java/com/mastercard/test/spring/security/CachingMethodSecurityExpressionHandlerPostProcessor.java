@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.security.access.AccessDecisionManager;
+import org.springframework.security.access.AccessDecisionVoter;
+import org.springframework.security.access.AfterInvocationProvider;
+import org.springframework.security.access.expression.method.ExpressionBasedPostInvocationAdvice;
+import org.springframework.security.access.expression.method.ExpressionBasedPreInvocationAdvice;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionHandler;
+import org.springframework.security.access.intercept.AfterInvocationManager;
+import org.springframework.security.access.intercept.AfterInvocationProviderManager;
+import org.springframework.security.access.intercept.aopalliance.MethodSecurityInterceptor;
+import org.springframework.security.access.prepost.PostInvocationAdviceProvider;
+import org.springframework.security.access.prepost.PreInvocationAuthorizationAdviceVoter;
+import org.springframework.security.access.vote.AbstractAccessDecisionManager;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A BeanPostProcessor that decorates MethodSecurityExpressionHandlers with a
+ * {@link CachingMethodSecurityExpressionHandler}.  Add it to the test's context configuration to reuse
+ * expression roots without changing the application's security configuration.
+ * <p>
+ * MethodSecurityExpressionHandler beans are decorated, as are the handlers of the pre and post invocation
+ * advice of MethodSecurityInterceptor beans, such as the one configured by {@code @EnableGlobalMethodSecurity},
+ * whose handler is not a bean.  The handlers of the advice are not exposed by Spring Security, so they are
+ * replaced through reflection; interceptors configured differently are left unchanged.
+ * </p>
+ */
+public class CachingMethodSecurityExpressionHandlerPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof MethodSecurityExpressionHandler) {
+            return decorate((MethodSecurityExpressionHandler) bean);
+        }
+        if (bean instanceof MethodSecurityInterceptor) {
+            decoratePreInvocationAdvice(((MethodSecurityInterceptor) bean).getAccessDecisionManager());
+            decoratePostInvocationAdvice(((MethodSecurityInterceptor) bean).getAfterInvocationManager());
+        }
+        return bean;
+    }
+
+    private MethodSecurityExpressionHandler decorate(MethodSecurityExpressionHandler handler) {
+        return handler instanceof CachingMethodSecurityExpressionHandler ? handler : new CachingMethodSecurityExpressionHandler(handler);
+    }
+
+    /**
+     * Decorate the handler of the ExpressionBasedPreInvocationAdvice of each PreInvocationAuthorizationAdviceVoter.
+     * @param accessDecisionManager The AccessDecisionManager of the interceptor.
+     */
+    private void decoratePreInvocationAdvice(AccessDecisionManager accessDecisionManager) {
+        if (!(accessDecisionManager instanceof AbstractAccessDecisionManager)) {
+            return;
+        }
+
+        for (AccessDecisionVoter<?> voter : ((AbstractAccessDecisionManager) accessDecisionManager).getDecisionVoters()) {
+            if (voter instanceof PreInvocationAuthorizationAdviceVoter) {
+                Object advice = getField(voter, "preAdvice");
+                if (advice instanceof ExpressionBasedPreInvocationAdvice) {
+                    Object handler = getField(advice, "expressionHandler");
+                    if (handler instanceof MethodSecurityExpressionHandler) {
+                        ((ExpressionBasedPreInvocationAdvice) advice).setExpressionHandler(decorate((MethodSecurityExpressionHandler) handler));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Replace each PostInvocationAdviceProvider using an ExpressionBasedPostInvocationAdvice with one using
+     * the decorated handler.
+     * @param afterInvocationManager The AfterInvocationManager of the interceptor, or null.
+     */
+    private void decoratePostInvocationAdvice(AfterInvocationManager afterInvocationManager) {
+        if (!(afterInvocationManager instanceof AfterInvocationProviderManager)) {
+            return;
+        }
+
+        AfterInvocationProviderManager manager = (AfterInvocationProviderManager) afterInvocationManager;
+        List<AfterInvocationProvider> providers = new ArrayList<>();
+        for (AfterInvocationProvider provider : manager.getProviders()) {
+            Object advice = provider instanceof PostInvocationAdviceProvider ? getField(provider, "postAdvice") : null;
+            Object handler = advice instanceof ExpressionBasedPostInvocationAdvice ? getField(advice, "expressionHandler") : null;
+            if (handler instanceof MethodSecurityExpressionHandler && !(handler instanceof CachingMethodSecurityExpressionHandler)) {
+                provider = new PostInvocationAdviceProvider(new ExpressionBasedPostInvocationAdvice(decorate((MethodSecurityExpressionHandler) handler)));
+            }
+            providers.add(provider);
+        }
+        manager.setProviders(providers);
+    }
+
+    /**
+     * Read a private field of a Spring Security object.
+     * @param target The object.
+     * @param name The name of the field.
+     * @return The value, or null if the field does not exist.
+     */
+    private Object getField(Object target, String name) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        if (field == null) {
+            return null;
+        }
+        ReflectionUtils.makeAccessible(field);
+        return ReflectionUtils.getField(field, target);
+    }
+}
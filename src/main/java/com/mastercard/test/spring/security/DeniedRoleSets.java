@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Lazily generates the role sets of the denied users for {@link WithOtherRolesDenied}: one role set for each
+ * configured role that is not permitted, followed by the role set containing all of them.  Role sets that are
+ * equivalent to one already generated are pruned.
+ */
+public class DeniedRoleSets implements Iterable<String[]> {
+
+    private final List<String> deniedRoles;
+
+    /**
+     * Construct a new instance for the provided roles.
+     * @param configuredRoles All roles configured for the application.
+     * @param permittedRoles The roles granted to the permitted users.
+     */
+    public DeniedRoleSets(String[] configuredRoles, Collection<String> permittedRoles) {
+        Set<String> roles = new LinkedHashSet<>(Arrays.asList(configuredRoles));
+        roles.removeAll(permittedRoles);
+        this.deniedRoles = new ArrayList<>(roles);
+    }
+
+    /**
+     * Create an Iterator over the role sets.
+     * @return The Iterator.
+     */
+    @Override
+    public Iterator<String[]> iterator() {
+        return new Iterator<String[]>() {
+            private final Set<Set<String>> generated = new HashSet<>();
+            private int index = 0;
+            private String[] next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && index <= deniedRoles.size() && !deniedRoles.isEmpty()) {
+                    List<String> roles = index < deniedRoles.size()
+                            ? deniedRoles.subList(index, index + 1)
+                            : deniedRoles;
+                    index++;
+
+                    if (generated.add(new HashSet<>(roles))) {
+                        next = roles.toArray(new String[roles.size()]);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public String[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                String[] retVal = next;
+                next = null;
+                return retVal;
+            }
+        };
+    }
+}
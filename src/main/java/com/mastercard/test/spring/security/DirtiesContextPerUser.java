@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * When used with {@link SpringSecurityJUnit4ClassRunner} this annotation can be added to a test class or
+ * test method annotated with {@code @DirtiesContext} so that the ApplicationContext is dirtied for each of its
+ * mock/test users.  By default the runner treats all mock/test users of a test method as one test when dirtying
+ * the ApplicationContext: it is dirtied before the first mock/test user with {@code BEFORE_METHOD} modes, and
+ * after the last mock/test user with {@code AFTER_METHOD} modes.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface DirtiesContextPerUser {
+}
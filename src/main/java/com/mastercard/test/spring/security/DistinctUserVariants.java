@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * When used with {@link SpringSecurityJUnit4ClassRunner} or {@link SecurityJUnit4ClassRunner} this annotation
+ * can be added to a test class so that each distinct mock/test user is executed only once per test method.  User annotations that are
+ * equal, such as a class level {@link WithMockUser} repeated on a method or a user contributed twice through
+ * custom user annotations, are otherwise executed once for every occurrence.
+ *
+ * <p>The number of redundant executions eliminated for the class is logged to System.out.</p>
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface DistinctUserVariants {
+}
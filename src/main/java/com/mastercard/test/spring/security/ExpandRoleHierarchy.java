@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * When used with {@link SpringSecurityJUnit4ClassRunner} this annotation can be added to a test method or
+ * test class so that the authorities of each {@link WithMockUser} mock/test user, including those generated by
+ * {@link WithMockUserMatrix}, are expanded with every authority reachable through the RoleHierarchy bean of the
+ * ApplicationContext.  The user is granted the same authorities as in production, while the reachable
+ * authorities are computed once for each set of authorities and RoleHierarchy rather than for each test.
+ *
+ * <p>The annotation is not part of the mock/test user annotations, so the names of the mock/test users
+ * reported by the runner are the same with or without it.</p>
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface ExpandRoleHierarchy {
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link UserDetailsEnumerator} that pages through the usernames of a JDBC user store.  The default
+ * query matches the "users" table of the default Spring Security JDBC schema.  A custom query must select
+ * a single username column, restrict it to usernames greater than the single parameter and order by username.
+ *
+ * @see WithAllUserDetails
+ */
+public class JdbcUserDetailsEnumerator implements UserDetailsEnumerator {
+
+    /**
+     * The query used when none is specified.
+     */
+    public static final String DEFAULT_USERNAMES_QUERY = "select username from users where username > ? order by username";
+
+    private final DataSource dataSource;
+
+    private String usernamesQuery = DEFAULT_USERNAMES_QUERY;
+
+    /**
+     * Construct a new instance for the provided DataSource.
+     * @param dataSource The DataSource of the user store.
+     */
+    @Autowired
+    public JdbcUserDetailsEnumerator(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Set the query used to retrieve each page of usernames.
+     * @param usernamesQuery The query.
+     */
+    public void setUsernamesQuery(String usernamesQuery) {
+        this.usernamesQuery = usernamesQuery;
+    }
+
+    @Override
+    public List<String> findUsernames(String afterUsername, int pageSize) {
+        List<String> retVal = new ArrayList<>();
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(usernamesQuery)) {
+            statement.setString(1, afterUsername != null ? afterUsername : "");
+            statement.setMaxRows(pageSize);
+            statement.setFetchSize(pageSize);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    retVal.add(resultSet.getString(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to retrieve usernames after " + afterUsername, e);
+        }
+
+        return retVal;
+    }
+}
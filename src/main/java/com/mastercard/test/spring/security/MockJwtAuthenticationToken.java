@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An Authentication holding a signed JSON Web Token and its claims, as created for {@link WithMockJwtUser}.
+ */
+public class MockJwtAuthenticationToken extends AbstractAuthenticationToken {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String token;
+    private final Map<String, Object> claims;
+
+    /**
+     * Create an authenticated token.
+     * @param token The signed token.
+     * @param claims The claims of the token, excluding the time based claims.
+     * @param authorities The authorities granted to the subject.
+     */
+    public MockJwtAuthenticationToken(String token, Map<String, Object> claims, Collection<? extends GrantedAuthority> authorities) {
+        super(authorities);
+        this.token = token;
+        this.claims = Collections.unmodifiableMap(claims);
+        setAuthenticated(true);
+    }
+
+    /**
+     * @return The signed token.
+     */
+    @Override
+    public Object getCredentials() {
+        return token;
+    }
+
+    /**
+     * @return The subject of the token.
+     */
+    @Override
+    public Object getPrincipal() {
+        return claims.get("sub");
+    }
+
+    /**
+     * @return The signed token.
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * @return The claims of the token, excluding the time based claims.
+     */
+    public Map<String, Object> getClaims() {
+        return claims;
+    }
+
+    /**
+     * @return The value of the Authorization header authenticating a request with the token.
+     */
+    public String getAuthorizationHeader() {
+        return "Bearer " + token;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Signs JSON Web Tokens for {@link WithMockJwtUser} with an RSA key pair generated once per JVM.  Signed tokens
+ * are cached by their claims, so signing happens once for each distinct identity.  Applications under test
+ * verify the tokens using {@link #getPublicKey()}.
+ */
+public final class MockJwtTokens {
+
+    /**
+     * The issuer of tokens when none is specified.
+     */
+    public static final String DEFAULT_ISSUER = "https://mock-jwt.test";
+
+    /**
+     * The id of the signing key, as included in the "kid" header of the tokens.
+     */
+    public static final String KEY_ID = "mock-jwt-key";
+
+    private static final long VALIDITY_SECONDS = TimeUnit.DAYS.toSeconds(1);
+
+    private static final Map<Map<String, Object>, String> TOKENS = new ConcurrentHashMap<>();
+
+    private static final AtomicLong SIGNED = new AtomicLong();
+
+    private MockJwtTokens() {
+    }
+
+    /**
+     * @return The public key verifying the signature of the tokens.
+     */
+    public static RSAPublicKey getPublicKey() {
+        return (RSAPublicKey) KeyHolder.KEY_PAIR.getPublic();
+    }
+
+    /**
+     * Retrieve the signed token for the claims, signing it if it has not been signed before.  The "iat"
+     * and "exp" claims are added when the token is signed.
+     * @param claims The claims, whose values are strings, numbers, booleans or collections of strings.
+     * @return The signed token.
+     */
+    public static String getToken(Map<String, Object> claims) {
+        return TOKENS.computeIfAbsent(new HashMap<>(claims), key -> sign(claims));
+    }
+
+    /**
+     * @return The number of tokens signed by the JVM.
+     */
+    public static long getSignedCount() {
+        return SIGNED.get();
+    }
+
+    private static String sign(Map<String, Object> claims) {
+        long issuedAt = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+
+        StringBuilder payload = new StringBuilder("{");
+        for (Map.Entry<String, Object> claim : claims.entrySet()) {
+            appendString(payload, claim.getKey()).append(':');
+            appendValue(payload, claim.getValue()).append(',');
+        }
+        payload.append("\"iat\":").append(issuedAt).append(",\"exp\":").append(issuedAt + VALIDITY_SECONDS).append('}');
+
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String signingInput = encoder.encodeToString(("{\"alg\":\"RS256\",\"typ\":\"JWT\",\"kid\":\"" + KEY_ID + "\"}").getBytes(StandardCharsets.UTF_8))
+                + "." + encoder.encodeToString(payload.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(KeyHolder.KEY_PAIR.getPrivate());
+            signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            SIGNED.incrementAndGet();
+            return signingInput + "." + encoder.encodeToString(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to sign token", e);
+        }
+    }
+
+    private static StringBuilder appendValue(StringBuilder json, Object value) {
+        if (value instanceof Collection) {
+            json.append('[');
+            String separator = "";
+            for (Object element : (Collection<?>) value) {
+                json.append(separator);
+                appendValue(json, element);
+                separator = ",";
+            }
+            return json.append(']');
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return json.append(value);
+        }
+        return appendString(json, String.valueOf(value));
+    }
+
+    private static StringBuilder appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"');
+    }
+
+    /**
+     * Generates the key pair on first use.
+     */
+    private static final class KeyHolder {
+        private static final KeyPair KEY_PAIR;
+
+        static {
+            try {
+                KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+                generator.initialize(2048);
+                KEY_PAIR = generator.generateKeyPair();
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Unable to generate the signing key", e);
+            }
+        }
+    }
+}
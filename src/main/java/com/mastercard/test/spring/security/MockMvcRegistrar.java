@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+
+/**
+ * Registers a single MockMvc, configured with the Spring Security filter chain, as a bean of each
+ * WebApplicationContext used by {@link SpringSecurityJUnit4ClassRunner}, so that test classes can
+ * {@code @Autowired} it instead of building the filter chain for each test.  As configured by
+ * {@code springSecurity()}, every request uses the SecurityContext of the mock/test user being run.
+ * <p>
+ * Contexts that are not a WebApplicationContext, do not contain a {@code springSecurityFilterChain} or already
+ * contain a MockMvc bean are left unchanged.  This class must only be used when Spring MVC and the Servlet API
+ * are on the classpath.
+ * </p>
+ */
+final class MockMvcRegistrar {
+
+    /**
+     * The name of the MockMvc bean.
+     */
+    static final String MOCK_MVC_BEAN_NAME = "springSecurityMockMvc";
+
+    private static final String FILTER_CHAIN_BEAN_NAME = "springSecurityFilterChain";
+
+    private MockMvcRegistrar() {
+    }
+
+    /**
+     * Register the MockMvc with the ApplicationContext, unless it is not applicable.
+     * @param context The ApplicationContext.
+     */
+    static void register(ApplicationContext context) {
+        if (!(context instanceof WebApplicationContext) || !(context instanceof ConfigurableApplicationContext)
+                || !context.containsBean(FILTER_CHAIN_BEAN_NAME)) {
+            return;
+        }
+
+        ConfigurableListableBeanFactory beanFactory = ((ConfigurableApplicationContext) context).getBeanFactory();
+        synchronized (beanFactory) {
+            if (beanFactory.getBeanNamesForType(MockMvc.class).length == 0) {
+                MockMvc mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                        .apply(springSecurity())
+                        .build();
+                beanFactory.registerSingleton(MOCK_MVC_BEAN_NAME, mockMvc);
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.MultipleFailureException;
+import org.junit.runners.model.Statement;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.test.context.TestSecurityContextHolder;
+import org.springframework.security.test.context.support.WithSecurityContext;
+import org.springframework.security.test.context.support.WithSecurityContextFactory;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.SpringSecurityTestBootstrapUtils;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * {@code MultiUserRule} is a custom JUnit {@link TestRule} that runs a test once for each mock/test user
+ * found on the test class and test method, so that multiple users can be used with runners other than
+ * {@link SpringSecurityJUnit4ClassRunner}, such as {@code Parameterized} or a parallel runner.  Like
+ * {@link LogPrincipalRule} it wraps the statement of the test: the SecurityContext of each mock/test user is
+ * established in turn and the statement, including {@code @Before} and {@code @After} methods, is evaluated
+ * for it.  The failures of all mock/test users are reported together as failures of the single test.
+ * <p>
+ * For test classes configured with {@code @ContextConfiguration}, such as those using {@code SpringClassRule}
+ * and {@code SpringMethodRule}, the WithSecurityContextFactory and WithUserVariantsFactory implementations are
+ * created through the test's cached ApplicationContext so that their dependencies can be autowired; otherwise
+ * they are instantiated with their no-argument constructor.  {@link MultiUserTestExecutionListener} keeps the
+ * SecurityContext of each mock/test user in place when {@code SpringMethodRule} runs the TestExecutionListeners
+ * within the rule.  The rule must not be used with {@link SpringSecurityJUnit4ClassRunner}, which already runs
+ * each mock/test user as a separate test.
+ * </p>
+ */
+public class MultiUserRule implements TestRule {
+
+    private static final ThreadLocal<SecurityContext> CURRENT_CONTEXT = new ThreadLocal<>();
+
+    /**
+     * @return The SecurityContext of the mock/test user being run on the current thread, or null if there is none.
+     */
+    static SecurityContext getCurrentContext() {
+        return CURRENT_CONTEXT.get();
+    }
+
+    /**
+     * Apply the mock/test users of the test to the supplied {@code base} statement.
+     * @param base the base {@code Statement} that this rule should be applied to
+     * @param description a {@code Description} of the current test execution
+     * @return a statement that evaluates the supplied {@code base} once for each mock/test user, or the
+     * {@code base} statement if the test has no mock/test users
+     */
+    @Override
+    public Statement apply(Statement base, Description description) {
+        List<Annotation> userAnnotations = new ArrayList<>();
+        if (description.getTestClass() != null) {
+            userAnnotations.addAll(UserAnnotations.find(description.getTestClass().getAnnotations()));
+        }
+        userAnnotations.addAll(UserAnnotations.find(description.getAnnotations().toArray(new Annotation[0])));
+        if (userAnnotations.isEmpty()) {
+            return base;
+        }
+
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                Factories factories = new Factories(description.getTestClass());
+                List<Throwable> errors = new ArrayList<>();
+                for (Annotation user : expandUserVariants(userAnnotations, factories)) {
+                    SecurityContext securityContext = factories.createSecurityContext(user);
+                    CURRENT_CONTEXT.set(securityContext);
+                    TestSecurityContextHolder.setContext(securityContext);
+                    try {
+                        base.evaluate();
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    } finally {
+                        CURRENT_CONTEXT.remove();
+                        TestSecurityContextHolder.clearContext();
+                    }
+                }
+                MultipleFailureException.assertEmpty(errors);
+            }
+        };
+    }
+
+    /**
+     * Expand the user annotations marked with {@link WithUserVariants} into the annotations of their variants.
+     * @param userAnnotations The annotations representing mock/test users.
+     * @param factories The factories of the test.
+     * @return The annotations of the individual mock/test users.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Annotation> expandUserVariants(List<Annotation> userAnnotations, Factories factories) {
+        List<Annotation> retVal = new ArrayList<>();
+        for (Annotation userAnnotation : userAnnotations) {
+            WithUserVariants withUserVariants = userAnnotation.annotationType().getAnnotation(WithUserVariants.class);
+            if (withUserVariants != null) {
+                WithUserVariantsFactory factory = factories.create(withUserVariants.factory());
+                Iterator<Annotation> variants = factory.createUserVariants(userAnnotation);
+                while (variants.hasNext()) {
+                    retVal.add(variants.next());
+                }
+            } else {
+                retVal.add(userAnnotation);
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * Creates the factories of a test, through its ApplicationContext if it has one.
+     */
+    private static class Factories {
+        private final Class<?> testClass;
+        private ApplicationContext context;
+
+        /**
+         * Construct a new instance for the test class.
+         * @param testClass The test class, or null.
+         */
+        private Factories(Class<?> testClass) {
+            this.testClass = testClass;
+        }
+
+        /**
+         * Create the SecurityContext for the mock/test user using the WithSecurityContextFactory of the user
+         * annotation.
+         * @param userAnnotation The annotation representing the mock/test user.
+         * @return The SecurityContext, which is empty if the factory does not provide one.
+         */
+        @SuppressWarnings("unchecked")
+        private SecurityContext createSecurityContext(Annotation userAnnotation) {
+            WithSecurityContext withSecurityContext = userAnnotation.annotationType().getAnnotation(WithSecurityContext.class);
+            WithSecurityContextFactory factory = create(withSecurityContext.factory());
+
+            SecurityContext securityContext = factory.createSecurityContext(userAnnotation);
+            return securityContext != null ? securityContext : SecurityContextHolder.createEmptyContext();
+        }
+
+        /**
+         * Construct a factory, autowiring it with the ApplicationContext of the test class if it has one.
+         * @param clazz The factory class.
+         * @param <T> The type of the factory.
+         * @return The instance.
+         */
+        private <T> T create(Class<T> clazz) {
+            if (testClass == null || AnnotationUtils.findAnnotation(testClass, ContextConfiguration.class) == null) {
+                return BeanUtils.instantiateClass(clazz);
+            }
+            if (context == null) {
+                //the bootstrapped TestContext shares the context cache with SpringClassRule and the Spring runners
+                context = SpringSecurityTestBootstrapUtils.resolveTestContextBootstrapper(
+                        SpringSecurityTestBootstrapUtils.createBootstrapContext(testClass)).buildTestContext().getApplicationContext();
+            }
+            return context.getAutowireCapableBeanFactory().createBean(clazz);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.test.context.TestSecurityContextHolder;
+import org.springframework.security.test.context.support.WithSecurityContextTestExecutionListener;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+
+/**
+ * A TestExecutionListener that re-establishes the SecurityContext of the mock/test user being run by a
+ * {@link MultiUserRule} before each test method.  Spring's {@code SpringMethodRule} invokes the
+ * {@link WithSecurityContextTestExecutionListener} within the statement of the rule, which would otherwise
+ * replace the SecurityContext of the mock/test user with the one of a single user annotation of the test
+ * method or test class.
+ * <p>
+ * The listener is registered as a default TestExecutionListener and is ordered after the
+ * WithSecurityContextTestExecutionListener.  Test classes declaring their listeners with
+ * {@code @TestExecutionListeners} must include it when using {@link MultiUserRule}.  It has no effect on
+ * tests that are not run by a MultiUserRule.
+ * </p>
+ */
+public class MultiUserTestExecutionListener extends AbstractTestExecutionListener {
+
+    /**
+     * The order of the listener, following the WithSecurityContextTestExecutionListener.
+     */
+    public static final int ORDER = 1100;
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public void beforeTestMethod(TestContext testContext) throws Exception {
+        SecurityContext securityContext = MultiUserRule.getCurrentContext();
+        if (securityContext != null) {
+            TestSecurityContextHolder.setContext(securityContext);
+        }
+    }
+}
@@ -0,0 +1,420 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.Test;
+import org.junit.internal.runners.statements.Fail;
+import org.junit.internal.runners.statements.FailOnTimeout;
+import org.junit.rules.MethodRule;
+import org.junit.rules.RunRules;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.manipulation.NoTestsRemainException;
+import org.junit.runners.Parameterized;
+import org.junit.runners.model.FrameworkField;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.Statement;
+
+import java.lang.reflect.Field;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link SecurityJUnit4ClassRunner} for data-driven tests that runs each test method once for each combination
+ * of a row returned by the {@code @Parameters} method, as with {@code Parameterized}, and a mock/test user.  Rows
+ * are passed to the constructor of the test class or to its {@code @Parameter} fields.
+ * <p>
+ * The child tests are not built up front: the runner only keeps the rows and the mock/test users of each test
+ * method, and creates the child test for a (row, method, user) combination when it is run or described.
+ * Filtering keeps the positions of the remaining child tests rather than the child tests themselves.  The child
+ * tests can be split between several JVMs by setting the system properties
+ * {@code mastercard.security.test.shard.count} and {@code mastercard.security.test.shard.index}, in which case
+ * each JVM runs every {@code shard.count}-th child test starting at position {@code shard.index}.
+ * </p>
+ */
+public class ParameterizedSecurityJUnit4ClassRunner extends SecurityJUnit4ClassRunner {
+
+    /**
+     * The system property holding the number of shards the child tests are split into.
+     */
+    public static final String SHARD_COUNT_PROPERTY = "mastercard.security.test.shard.count";
+
+    /**
+     * The system property holding the shard of the child tests run by this JVM, starting at 0.
+     */
+    public static final String SHARD_INDEX_PROPERTY = "mastercard.security.test.shard.index";
+
+    private final List<Object[]> rows;
+
+    private final LazyChildren children;
+
+    /**
+     * Construct a new {@code ParameterizedSecurityJUnit4ClassRunner} to execute
+     * data-driven JUnit tests with multiple mock/test users.
+     * @param clazz the test class to be run
+     * @throws InitializationError if the test class is malformed.
+     */
+    public ParameterizedSecurityJUnit4ClassRunner(Class<?> clazz) throws InitializationError {
+        super(clazz);
+        try {
+            rows = readRows();
+        } catch (Throwable e) {
+            throw new InitializationError(e);
+        }
+        children = new LazyChildren(super.getChildren());
+        children.shard(getShardProperty(SHARD_COUNT_PROPERTY, 1), getShardProperty(SHARD_INDEX_PROPERTY, 0));
+    }
+
+    /**
+     * Adds to {@code errors} if the shard properties are not numbers or the shard index is not within
+     * {@code 0 <= shard.index < shard.count}, as the runner would otherwise silently run no child tests.
+     * @param errors The list of errors to append to.
+     */
+    @Override
+    protected void collectInitializationErrors(List<Throwable> errors) {
+        super.collectInitializationErrors(errors);
+        try {
+            int count = getShardProperty(SHARD_COUNT_PROPERTY, 1);
+            int index = getShardProperty(SHARD_INDEX_PROPERTY, 0);
+            if (count < 1 || index < 0 || index >= count) {
+                errors.add(new Exception("Invalid shard " + SHARD_INDEX_PROPERTY + "=" + index + " for "
+                        + SHARD_COUNT_PROPERTY + "=" + count));
+            }
+        } catch (NumberFormatException e) {
+            errors.add(new Exception("Invalid shard property: " + e.getMessage(), e));
+        }
+    }
+
+    /**
+     * Read a shard system property.
+     * @param name The name of the property.
+     * @param defaultValue The value used when the property is not set.
+     * @return The value of the property.
+     * @throws NumberFormatException if the property is not a number.
+     */
+    private static int getShardProperty(String name, int defaultValue) {
+        String value = System.getProperty(name);
+        return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+    }
+
+    /**
+     * Only require a single constructor, which receives the parameters of a row unless they are injected into
+     * {@code @Parameter} fields.
+     * @param errors The list of validation errors to add to.
+     */
+    @Override
+    protected void validateConstructor(List<Throwable> errors) {
+        validateOnlyOneConstructor(errors);
+    }
+
+    /**
+     * Returns a view of the child tests that creates each of them when it is accessed.
+     * @return The child tests.
+     */
+    @Override
+    protected List<FrameworkMethod> getChildren() {
+        return children != null ? children : super.getChildren();
+    }
+
+    /**
+     * Construct a description listing the child test of each row and mock/test user of each test method.
+     * @return A Description defining the tests to be run by the receiver.
+     */
+    @Override
+    public Description getDescription() {
+        Description description = Description.createSuiteDescription(getName(), getRunnerAnnotations());
+        for (FrameworkMethod child : getChildren()) {
+            description.addChild(describeChild(child));
+        }
+        return description;
+    }
+
+    /**
+     * Construct a Description that represents the child test, named after its test method and row.
+     * @param method The method representing the child test.
+     * @return The Description representing the child test.
+     */
+    @Override
+    protected Description describeChild(FrameworkMethod method) {
+        if (method instanceof RowFrameworkMethod) {
+            RowFrameworkMethod child = (RowFrameworkMethod) method;
+            return Description.createTestDescription(getTestClass().getJavaClass().getName(), child.getName(),
+                    new SpringSecurityJUnit4ClassRunner.TestIdentifier(child.toString(), child.position));
+        }
+        return super.describeChild(method);
+    }
+
+    /**
+     * Applies the filter to the child tests without creating a list of the remaining ones.
+     * @param filter The filter to apply.
+     * @throws NoTestsRemainException if no child tests remain.
+     */
+    @Override
+    public void filter(Filter filter) throws NoTestsRemainException {
+        children.filter(filter);
+        if (children.isEmpty()) {
+            throw new NoTestsRemainException();
+        }
+    }
+
+    /**
+     * Create the statement running the child test with a new test instance for its row and the SecurityContext of
+     * its mock/test user, as the inherited methodBlock() does for test classes without parameters.
+     * @param method The method representing the child test.
+     * @return The Statement running the child test.
+     */
+    @Override
+    protected Statement methodBlock(FrameworkMethod method) {
+        RowFrameworkMethod child = (RowFrameworkMethod) method;
+
+        Object test;
+        try {
+            test = createTest(rows.get(child.row));
+        } catch (Throwable e) {
+            return new Fail(e);
+        }
+
+        Statement statement = methodInvoker(child, test);
+        statement = possiblyExpectingExceptions(child, test, statement);
+        statement = withTimeout(child, statement);
+        statement = withBefores(child, test, statement);
+        statement = withAfters(child, test, statement);
+        statement = withTestRules(child, test, statement);
+        return withSecurityContext(child.variant, statement);
+    }
+
+    /**
+     * Fail the child test if it runs longer than the timeout of its {@code @Test} annotation, as the deprecated
+     * inherited withPotentialTimeout() does.
+     * @param method The method representing the child test.
+     * @param statement The Statement running the child test.
+     * @return The Statement failing on timeout, or the provided statement if the test has no timeout.
+     */
+    private Statement withTimeout(FrameworkMethod method, Statement statement) {
+        Test annotation = method.getAnnotation(Test.class);
+        long timeout = annotation != null ? annotation.timeout() : 0;
+        if (timeout <= 0) {
+            return statement;
+        }
+        return FailOnTimeout.builder().withTimeout(timeout, TimeUnit.MILLISECONDS).build(statement);
+    }
+
+    /**
+     * Create the test instance for a row, passing its parameters to the constructor or to the
+     * {@code @Parameter} fields.
+     * @param parameters The parameters of the row.
+     * @return The test instance.
+     * @throws Exception if the test instance cannot be created.
+     */
+    private Object createTest(Object[] parameters) throws Exception {
+        List<FrameworkField> fields = getTestClass().getAnnotatedFields(Parameterized.Parameter.class);
+        if (fields.isEmpty()) {
+            return getTestClass().getOnlyConstructor().newInstance(parameters);
+        }
+
+        Object retVal = getTestClass().getOnlyConstructor().newInstance();
+        for (FrameworkField frameworkField : fields) {
+            Field field = frameworkField.getField();
+            field.setAccessible(true);
+            field.set(retVal, parameters[field.getAnnotation(Parameterized.Parameter.class).value()]);
+        }
+        return retVal;
+    }
+
+    /**
+     * Apply the rules of the test instance to the statement, as the inherited methodBlock() would.
+     * @param method The method representing the child test.
+     * @param test The test instance.
+     * @param statement The statement to wrap.
+     * @return The statement applying the rules.
+     */
+    private Statement withTestRules(FrameworkMethod method, Object test, Statement statement) {
+        List<TestRule> testRules = getTestRules(test);
+        Statement retVal = statement;
+        for (MethodRule rule : rules(test)) {
+            if (!testRules.contains(rule)) {
+                retVal = rule.apply(retVal, method, test);
+            }
+        }
+        if (!testRules.isEmpty()) {
+            retVal = new RunRules(retVal, testRules, describeChild(method));
+        }
+        return retVal;
+    }
+
+    /**
+     * Read the rows returned by the {@code @Parameters} method of the test class.
+     * @return The parameters of each row.
+     * @throws Throwable if the method cannot be invoked.
+     */
+    private List<Object[]> readRows() throws Throwable {
+        FrameworkMethod parametersMethod = null;
+        for (FrameworkMethod method : getTestClass().getAnnotatedMethods(Parameterized.Parameters.class)) {
+            if (method.isStatic() && method.isPublic()) {
+                parametersMethod = method;
+                break;
+            }
+        }
+        if (parametersMethod == null) {
+            throw new Exception("No public static parameters method on class " + getTestClass().getName());
+        }
+
+        Object parameters = parametersMethod.invokeExplosively(null);
+        Iterable<?> iterable = parameters instanceof Object[] ? Arrays.asList((Object[]) parameters) : (Iterable<?>) parameters;
+
+        List<Object[]> retVal = new ArrayList<>();
+        for (Object row : iterable) {
+            retVal.add(row instanceof Object[] ? (Object[]) row : new Object[] {row});
+        }
+        return retVal;
+    }
+
+    /**
+     * A child test for a row and a mock/test user of a test method.
+     */
+    private static class RowFrameworkMethod extends FrameworkMethod {
+        private final FrameworkMethod variant;
+        private final int row;
+        private final int position;
+
+        /**
+         * Construct a new instance.
+         * @param variant The test method, or the method representing one of its mock/test users.
+         * @param row The index of the row.
+         * @param position The position of the child test among the child tests of every row.
+         */
+        private RowFrameworkMethod(FrameworkMethod variant, int row, int position) {
+            super(variant.getMethod());
+            this.variant = variant;
+            this.row = row;
+            this.position = position;
+        }
+
+        /**
+         * Retrieve the name of the test method followed by the index of the row.
+         * @return The name.
+         */
+        @Override
+        public String getName() {
+            return super.getName() + "[" + row + "]";
+        }
+
+        /**
+         * Provide a text representation of the instance.
+         * @return A text representation of the instance.
+         */
+        @Override
+        public String toString() {
+            return variant + "[" + row + "]";
+        }
+
+        /**
+         * Determine if the provided object is equal to the current instance.
+         * @param obj The object to compare.
+         * @return True if the object is equal, otherwise false.
+         */
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof RowFrameworkMethod && row == ((RowFrameworkMethod) obj).row
+                    && variant.equals(((RowFrameworkMethod) obj).variant);
+        }
+
+        /**
+         * Calculate the hashcode for the instance.
+         * @return The hashcode.
+         */
+        @Override
+        public int hashCode() {
+            return variant.hashCode() * 31 + row;
+        }
+    }
+
+    /**
+     * The child tests of every row, in the order of the rows.  Child tests are created when they are accessed,
+     * and sharding and filtering are applied by keeping the positions of the remaining child tests.
+     */
+    private class LazyChildren extends AbstractList<FrameworkMethod> {
+        private final List<FrameworkMethod> variants;
+        private int[] positions;
+
+        /**
+         * Construct a new instance.
+         * @param variants The test methods, or the methods representing their mock/test users, of a single row.
+         */
+        private LazyChildren(List<FrameworkMethod> variants) {
+            this.variants = variants;
+        }
+
+        /**
+         * Keep the child tests of a shard.
+         * @param count The number of shards.
+         * @param index The shard to keep.
+         */
+        private void shard(int count, int index) {
+            if (count <= 1) {
+                return;
+            }
+            int[] retained = new int[size() / count + 1];
+            int size = 0;
+            for (int i = 0; i < size(); i++) {
+                if (i % count == index) {
+                    retained[size++] = position(i);
+                }
+            }
+            positions = Arrays.copyOf(retained, size);
+        }
+
+        /**
+         * Keep the child tests the filter should run.
+         * @param filter The filter.
+         */
+        private void filter(Filter filter) {
+            int[] retained = new int[size()];
+            int size = 0;
+            for (int i = 0; i < size(); i++) {
+                if (filter.shouldRun(describeChild(get(i)))) {
+                    retained[size++] = position(i);
+                }
+            }
+            positions = Arrays.copyOf(retained, size);
+        }
+
+        /**
+         * Retrieve the position of a remaining child test among the child tests of every row.
+         * @param index The index of the remaining child test.
+         * @return The position.
+         */
+        private int position(int index) {
+            return positions != null ? positions[index] : index;
+        }
+
+        @Override
+        public FrameworkMethod get(int index) {
+            int position = position(index);
+            return new RowFrameworkMethod(variants.get(position % variants.size()), position / variants.size(), position);
+        }
+
+        @Override
+        public int size() {
+            return positions != null ? positions.length : rows.size() * variants.size();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable index of named personas, as used by {@link WithPersona}.  Each properties resource is loaded
+ * once per JVM and every persona is parsed up front, so resolving a persona only builds its Authentication.  A persona is defined by the following properties, all of which are optional:
+ *
+ * <ul>
+ * <li>{@code <name>.username} - the username, defaulting to the name of the persona</li>
+ * <li>{@code <name>.password} - the password, defaulting to "password"</li>
+ * <li>{@code <name>.roles} - comma separated roles that are prefixed with "ROLE_", defaulting to "USER"</li>
+ * <li>{@code <name>.authorities} - comma separated authorities; when specified roles cannot be used</li>
+ * </ul>
+ *
+ * <p>Every lookup returns a new Authentication, so a test that modifies it, for example by erasing its
+ * credentials, does not affect other tests using the persona.</p>
+ */
+public final class PersonaRegistry {
+
+    /**
+     * The location of the properties resource used when none is specified.
+     */
+    public static final String DEFAULT_LOCATION = "classpath:personas.properties";
+
+    private static final Map<String, PersonaRegistry> REGISTRIES = new ConcurrentHashMap<>();
+
+    private static final List<String> ATTRIBUTES = Arrays.asList("username", "password", "roles", "authorities");
+
+    private final String location;
+    private final Map<String, User> personas;
+
+    /**
+     * Construct a new instance from the provided properties.
+     * @param location The location of the properties, used in error messages.
+     * @param properties The properties defining the personas.
+     */
+    private PersonaRegistry(String location, Properties properties) {
+        this.location = location;
+
+        TreeSet<String> names = new TreeSet<>();
+        for (String key : properties.stringPropertyNames()) {
+            int index = key.lastIndexOf('.');
+            if (index > 0 && ATTRIBUTES.contains(key.substring(index + 1))) {
+                names.add(key.substring(0, index));
+            }
+        }
+
+        Map<String, User> users = new HashMap<>();
+        for (String name : names) {
+            users.put(name, buildUser(name, properties));
+        }
+        this.personas = Collections.unmodifiableMap(users);
+    }
+
+    /**
+     * Retrieve the registry for the provided resource location, loading the resource if it has not been
+     * loaded before.
+     * @param location The location of the properties resource.
+     * @return The registry.
+     * @throws IllegalArgumentException if the resource cannot be read.
+     */
+    public static PersonaRegistry forLocation(String location) {
+        return REGISTRIES.computeIfAbsent(location, PersonaRegistry::load);
+    }
+
+    /**
+     * Create a new Authentication for the named persona.
+     * @param name The name of the persona.
+     * @return The Authentication.
+     * @throws IllegalArgumentException if the persona is not defined.
+     */
+    public Authentication getAuthentication(String name) {
+        User persona = personas.get(name);
+        if (persona == null) {
+            throw new IllegalArgumentException("Unknown persona " + name + " in " + location
+                    + ", expected one of " + new TreeSet<>(personas.keySet()));
+        }
+
+        User principal = new User(persona.getUsername(), persona.getPassword(), true, true, true, true, persona.getAuthorities());
+        return new UsernamePasswordAuthenticationToken(principal, principal.getPassword(), principal.getAuthorities());
+    }
+
+    /**
+     * Retrieve the names of the personas defined in the registry.
+     * @return The names of the personas.
+     */
+    public Set<String> getNames() {
+        return personas.keySet();
+    }
+
+    /**
+     * Build the template User for the named persona.  The template is never handed out, so its credentials
+     * cannot be erased.
+     * @param name The name of the persona.
+     * @param properties The properties defining the personas.
+     * @return The User.
+     */
+    private User buildUser(String name, Properties properties) {
+        String username = properties.getProperty(name + ".username", name);
+        String password = properties.getProperty(name + ".password", "password");
+        String roles = properties.getProperty(name + ".roles");
+        String authorities = properties.getProperty(name + ".authorities");
+
+        if (roles != null && authorities != null) {
+            throw new IllegalStateException("You cannot define roles attribute " + roles + " with authorities attribute "
+                    + authorities + " for persona " + name + " in " + location);
+        }
+
+        List<GrantedAuthority> grantedAuthorities = new ArrayList<>();
+        if (authorities != null) {
+            for (String authority : StringUtils.commaDelimitedListToStringArray(authorities)) {
+                grantedAuthorities.add(new SimpleGrantedAuthority(authority.trim()));
+            }
+        } else {
+            for (String role : StringUtils.commaDelimitedListToStringArray(roles != null ? roles : "USER")) {
+                if (role.trim().startsWith("ROLE_")) {
+                    throw new IllegalArgumentException("roles cannot start with ROLE_ Got " + role + " for persona " + name);
+                }
+                grantedAuthorities.add(new SimpleGrantedAuthority("ROLE_" + role.trim()));
+            }
+        }
+
+        return new User(username, password, true, true, true, true, grantedAuthorities);
+    }
+
+    /**
+     * Load the registry from the resource at the provided location.
+     * @param location The location of the resource.
+     * @return The registry.
+     * @throws IllegalArgumentException if the resource cannot be read.
+     */
+    private static PersonaRegistry load(String location) {
+        Resource resource = new DefaultResourceLoader().getResource(location);
+        if (!resource.exists()) {
+            throw new IllegalArgumentException("Unable to locate personas at " + location);
+        }
+
+        try {
+            return new PersonaRegistry(location, PropertiesLoaderUtils.loadProperties(resource));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to read personas from " + location, e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily enumerates the combinations of a set of roles, in order of increasing size.  Only the
+ * current combination is held in memory, so large role sets can be iterated without materializing
+ * the power set.
+ */
+public class RoleCombinations implements Iterable<String[]> {
+
+    private final String[] roles;
+    private final int minRoles;
+    private final int maxRoles;
+
+    /**
+     * Construct a new instance for the provided roles.
+     * @param roles The roles to combine.
+     * @param minRoles The minimum number of roles within a combination.
+     * @param maxRoles The maximum number of roles within a combination.
+     * @throws IllegalArgumentException if the roles are null or the bounds are invalid.
+     */
+    public RoleCombinations(String[] roles, int minRoles, int maxRoles) {
+        if (roles == null) {
+            throw new IllegalArgumentException("The roles provided are null");
+        }
+        if (minRoles < 0 || maxRoles < minRoles || maxRoles > roles.length) {
+            throw new IllegalArgumentException("Invalid role bounds minRoles=" + minRoles + ", maxRoles=" + maxRoles
+                    + " for " + roles.length + " roles");
+        }
+        this.roles = roles.clone();
+        this.minRoles = minRoles;
+        this.maxRoles = maxRoles;
+    }
+
+    /**
+     * Create an Iterator over the combinations.
+     * @return The Iterator.
+     */
+    @Override
+    public Iterator<String[]> iterator() {
+        return new CombinationIterator();
+    }
+
+    /**
+     * Iterator that advances an array of role indexes to the next combination on demand.
+     */
+    private class CombinationIterator implements Iterator<String[]> {
+        private int size = minRoles;
+        private int[] indexes = firstCombination(minRoles);
+
+        @Override
+        public boolean hasNext() {
+            return indexes != null;
+        }
+
+        @Override
+        public String[] next() {
+            if (indexes == null) {
+                throw new NoSuchElementException();
+            }
+
+            String[] retVal = new String[indexes.length];
+            for (int i = 0; i < indexes.length; i++) {
+                retVal[i] = roles[indexes[i]];
+            }
+
+            advance();
+            return retVal;
+        }
+
+        /**
+         * Move to the next combination of the current size, or the first combination of the next size.
+         */
+        private void advance() {
+            int i = size - 1;
+            while (i >= 0 && indexes[i] == roles.length - size + i) {
+                i--;
+            }
+
+            if (i >= 0) {
+                indexes[i]++;
+                for (int j = i + 1; j < size; j++) {
+                    indexes[j] = indexes[j - 1] + 1;
+                }
+            } else if (size < maxRoles) {
+                size++;
+                indexes = firstCombination(size);
+            } else {
+                indexes = null;
+            }
+        }
+
+        /**
+         * Build the first combination of the provided size.
+         * @param size The number of roles.
+         * @return The role indexes of the combination.
+         */
+        private int[] firstCombination(int size) {
+            int[] retVal = new int[size];
+            for (int i = 0; i < size; i++) {
+                retVal[i] = i;
+            }
+            return retVal;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Lazily generates a covering array over a set of roles.  Every role is treated as a binary factor
+ * (granted or not granted) and the generated role sets cover every combination of granted/not granted
+ * for every group of {@link #strength} roles, which is typically far fewer role sets than the power set.
+ *
+ * <p>Role sets are produced greedily: each step evaluates a number of candidates drawn from a
+ * {@link Random} initialized with the provided seed and keeps the one covering the most uncovered
+ * interactions.  The same roles, bounds, strength and seed always produce the same role sets.</p>
+ */
+public class RoleCoveringArray implements Iterable<String[]> {
+
+    private static final int CANDIDATES_PER_ROW = 50;
+
+    private final String[] roles;
+    private final int minRoles;
+    private final int maxRoles;
+    private final int strength;
+    private final long seed;
+
+    /**
+     * Construct a new instance for the provided roles.
+     * @param roles The roles to combine.
+     * @param minRoles The minimum number of roles within a role set.
+     * @param maxRoles The maximum number of roles within a role set.
+     * @param strength The number of roles whose interactions must be covered.
+     * @param seed The seed used when choosing candidate role sets.
+     * @throws IllegalArgumentException if the roles are null or the bounds or strength are invalid.
+     */
+    public RoleCoveringArray(String[] roles, int minRoles, int maxRoles, int strength, long seed) {
+        if (roles == null) {
+            throw new IllegalArgumentException("The roles provided are null");
+        }
+        if (minRoles < 0 || maxRoles < minRoles || maxRoles > roles.length) {
+            throw new IllegalArgumentException("Invalid role bounds minRoles=" + minRoles + ", maxRoles=" + maxRoles
+                    + " for " + roles.length + " roles");
+        }
+        if (strength < 1 || strength > roles.length) {
+            throw new IllegalArgumentException("Invalid strength " + strength + " for " + roles.length + " roles");
+        }
+        this.roles = roles.clone();
+        this.minRoles = minRoles;
+        this.maxRoles = maxRoles;
+        this.strength = strength;
+        this.seed = seed;
+    }
+
+    /**
+     * Create an Iterator over the role sets.
+     * @return The Iterator.
+     */
+    @Override
+    public Iterator<String[]> iterator() {
+        return new CoveringIterator();
+    }
+
+    /**
+     * Iterator that greedily computes the next role set on demand until every feasible
+     * interaction has been covered.
+     */
+    private class CoveringIterator implements Iterator<String[]> {
+        private final Random random = new Random(seed);
+        private final List<int[]> groups = new ArrayList<>();
+        private final boolean[][] covered;
+        private int remaining;
+
+        CoveringIterator() {
+            addGroups(new int[strength], 0, 0);
+
+            int assignments = 1 << strength;
+            covered = new boolean[groups.size()][assignments];
+            for (boolean[] groupCovered : covered) {
+                for (int assignment = 0; assignment < assignments; assignment++) {
+                    int granted = Integer.bitCount(assignment);
+                    groupCovered[assignment] = !isFeasible(granted, strength - granted);
+                    if (!groupCovered[assignment]) {
+                        remaining++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Recursively collect every group of {@link #strength} role indexes.
+         * @param group The group being built.
+         * @param depth The number of indexes already placed in the group.
+         * @param start The first role index that may be placed at the current depth.
+         */
+        private void addGroups(int[] group, int depth, int start) {
+            if (depth == group.length) {
+                groups.add(group.clone());
+            } else {
+                for (int i = start; i <= roles.length - group.length + depth; i++) {
+                    group[depth] = i;
+                    addGroups(group, depth + 1, i + 1);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public String[] next() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+
+            boolean[] best = seededCandidate();
+            int bestScore = score(best);
+            for (int i = 0; i < CANDIDATES_PER_ROW; i++) {
+                boolean[] candidate = buildCandidate(new boolean[roles.length], new boolean[roles.length]);
+                int candidateScore = score(candidate);
+                if (candidateScore > bestScore) {
+                    best = candidate;
+                    bestScore = candidateScore;
+                }
+            }
+
+            markCovered(best);
+            return toRoles(best);
+        }
+
+        /**
+         * Build a candidate that is guaranteed to cover the first uncovered interaction, so that
+         * every step makes progress.
+         * @return The candidate role set.
+         */
+        private boolean[] seededCandidate() {
+            boolean[] granted = new boolean[roles.length];
+            boolean[] fixed = new boolean[roles.length];
+
+            search:
+            for (int g = 0; g < groups.size(); g++) {
+                for (int assignment = 0; assignment < covered[g].length; assignment++) {
+                    if (!covered[g][assignment]) {
+                        int[] group = groups.get(g);
+                        for (int i = 0; i < strength; i++) {
+                            fixed[group[i]] = true;
+                            granted[group[i]] = (assignment & (1 << i)) != 0;
+                        }
+                        break search;
+                    }
+                }
+            }
+
+            return buildCandidate(granted, fixed);
+        }
+
+        /**
+         * Randomly complete a role set, honoring the fixed roles and the role bounds.
+         * @param granted The grant state of the fixed roles.
+         * @param fixed Flags identifying the roles whose state has been fixed.
+         * @return The completed role set.
+         */
+        private boolean[] buildCandidate(boolean[] granted, boolean[] fixed) {
+            List<Integer> free = new ArrayList<>();
+            int fixedGranted = 0;
+            int fixedDenied = 0;
+            for (int i = 0; i < roles.length; i++) {
+                if (!fixed[i]) {
+                    free.add(i);
+                } else if (granted[i]) {
+                    fixedGranted++;
+                } else {
+                    fixedDenied++;
+                }
+            }
+
+            int lower = Math.max(minRoles, fixedGranted);
+            int upper = Math.min(maxRoles, roles.length - fixedDenied);
+            int toGrant = lower + random.nextInt(upper - lower + 1) - fixedGranted;
+
+            for (int i = 0; i < toGrant; i++) {
+                granted[free.remove(random.nextInt(free.size()))] = true;
+            }
+
+            return granted;
+        }
+
+        /**
+         * Count the uncovered interactions that would be covered by the candidate.
+         * @param candidate The candidate role set.
+         * @return The number of newly covered interactions.
+         */
+        private int score(boolean[] candidate) {
+            int retVal = 0;
+            for (int g = 0; g < groups.size(); g++) {
+                if (!covered[g][assignment(groups.get(g), candidate)]) {
+                    retVal++;
+                }
+            }
+            return retVal;
+        }
+
+        /**
+         * Mark all interactions present in the role set as covered.
+         * @param row The role set.
+         */
+        private void markCovered(boolean[] row) {
+            for (int g = 0; g < groups.size(); g++) {
+                int assignment = assignment(groups.get(g), row);
+                if (!covered[g][assignment]) {
+                    covered[g][assignment] = true;
+                    remaining--;
+                }
+            }
+        }
+
+        /**
+         * Encode the grant state of a group of roles within a role set as a bit mask.
+         * @param group The indexes of the roles in the group.
+         * @param row The role set.
+         * @return The bit mask.
+         */
+        private int assignment(int[] group, boolean[] row) {
+            int retVal = 0;
+            for (int i = 0; i < group.length; i++) {
+                if (row[group[i]]) {
+                    retVal |= 1 << i;
+                }
+            }
+            return retVal;
+        }
+
+        /**
+         * Convert a role set into the names of the granted roles.
+         * @param row The role set.
+         * @return The granted role names.
+         */
+        private String[] toRoles(boolean[] row) {
+            List<String> retVal = new ArrayList<>();
+            for (int i = 0; i < row.length; i++) {
+                if (row[i]) {
+                    retVal.add(roles[i]);
+                }
+            }
+            return retVal.toArray(new String[retVal.size()]);
+        }
+    }
+
+    /**
+     * Determine whether an interaction can appear in a role set that honors the role bounds.
+     * @param granted The number of roles granted by the interaction.
+     * @param denied The number of roles denied by the interaction.
+     * @return True if the interaction can be covered, otherwise false.
+     */
+    private boolean isFeasible(int granted, int denied) {
+        return Math.max(minRoles, granted) <= Math.min(maxRoles, roles.length - denied);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When used with {@link SpringSecurityJUnit4ClassRunner} this annotation can be added to a test class
+ * to execute the mock/test user variants of the class in a random order until a wall-clock budget
+ * has been spent.  Variants that have not started when the budget is exhausted are reported as ignored.
+ * Tests without mock/test users are always executed.
+ *
+ * <p>The order is derived from a seed that is logged to System.out when the first test executes.  The
+ * seed can be provided with the {@value #SEED_PROPERTY} system property to replay the same order, and the
+ * budget can be overridden (in seconds) with the {@value #BUDGET_PROPERTY} system property so that, for
+ * example, nightly builds can cover more variants than pull request builds.</p>
+ *
+ * @see UserVariantSampler
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface SampleUserVariants {
+
+    /**
+     * System property used to provide the seed for the execution order.
+     */
+    String SEED_PROPERTY = "mastercard.security.test.sampling.seed";
+
+    /**
+     * System property used to override the budget, in seconds.  A value of 0 or less removes the budget.
+     */
+    String BUDGET_PROPERTY = "mastercard.security.test.sampling.budget";
+
+    /**
+     * The wall-clock budget for executing the mock/test user variants of the class.
+     * @return The budget.
+     */
+    long budget();
+
+    /**
+     * The unit of the {@link #budget()}.  The default is seconds.
+     * @return The unit.
+     */
+    TimeUnit unit() default TimeUnit.SECONDS;
+}
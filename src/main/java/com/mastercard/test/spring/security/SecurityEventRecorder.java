@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.security.access.event.AbstractAuthorizationEvent;
+import org.springframework.security.access.event.AuthorizationFailureEvent;
+import org.springframework.security.authentication.event.AbstractAuthenticationEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Records the authentication and authorization events published by Spring Security, so that test methods can
+ * assert on them, for example that a mock/test user triggered exactly one access denial.
+ * <p>
+ * {@link SpringSecurityJUnit4ClassRunner} registers the recorder with the ApplicationContext and clears the
+ * recorded events before each mock/test user variant, so the events are scoped to the variant being run.
+ * Events are recorded in a bounded ring buffer per thread without locking, as Spring publishes events on the
+ * thread that triggered them.  Variants run in parallel therefore only see their own events; events published
+ * on other threads, such as the threads of an embedded server, are not visible to the test method.
+ * </p>
+ * <pre>
+ * SecurityEventRecorder.assertCount(AuthorizationFailureEvent.class, 1);
+ * </pre>
+ */
+public class SecurityEventRecorder implements ApplicationListener<ApplicationEvent> {
+
+    /**
+     * The maximum number of events recorded per thread, after which the oldest events are discarded.
+     */
+    public static final int CAPACITY = 128;
+
+    private static final ThreadLocal<RingBuffer> EVENTS = ThreadLocal.withInitial(RingBuffer::new);
+
+    private static final Set<ApplicationContext> REGISTERED = Collections.newSetFromMap(new WeakHashMap<>());
+
+    /**
+     * Register a recorder with the ApplicationContext, unless one is already registered.
+     * @param context The ApplicationContext, where contexts not supporting listener registration are ignored.
+     */
+    static void register(ApplicationContext context) {
+        if (!(context instanceof ConfigurableApplicationContext)) {
+            return;
+        }
+
+        synchronized (REGISTERED) {
+            if (REGISTERED.add(context)) {
+                ((ConfigurableApplicationContext) context).addApplicationListener(new SecurityEventRecorder());
+            }
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof AbstractAuthenticationEvent || event instanceof AbstractAuthorizationEvent) {
+            EVENTS.get().add(event);
+        }
+    }
+
+    /**
+     * Discard the events recorded on the current thread.
+     */
+    public static void clear() {
+        EVENTS.get().clear();
+    }
+
+    /**
+     * @return The events recorded on the current thread, oldest first.
+     */
+    public static List<ApplicationEvent> getEvents() {
+        return EVENTS.get().toList();
+    }
+
+    /**
+     * @return The number of events recorded on the current thread that were discarded because the
+     * buffer was full.
+     */
+    public static long getDiscardedCount() {
+        RingBuffer buffer = EVENTS.get();
+        return Math.max(0, buffer.written - CAPACITY);
+    }
+
+    /**
+     * Count the events of the provided type recorded on the current thread.
+     * @param type The event type, such as AuthorizationFailureEvent.
+     * @return The number of events.
+     */
+    public static int count(Class<? extends ApplicationEvent> type) {
+        int retVal = 0;
+        for (ApplicationEvent event : getEvents()) {
+            if (type.isInstance(event)) {
+                retVal++;
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * Assert the number of events of the provided type recorded on the current thread.
+     * @param type The event type, such as AuthorizationFailureEvent.
+     * @param expected The expected number of events.
+     * @throws AssertionError if the number of events differs.
+     */
+    public static void assertCount(Class<? extends ApplicationEvent> type, int expected) {
+        int actual = count(type);
+        if (actual != expected) {
+            throw new AssertionError("Expected " + expected + " " + type.getSimpleName() + " but recorded " + actual
+                    + ": " + getEvents());
+        }
+    }
+
+    /**
+     * Assert the number of access denials recorded on the current thread.
+     * @param expected The expected number of AuthorizationFailureEvents.
+     * @throws AssertionError if the number of events differs.
+     */
+    public static void assertAccessDenied(int expected) {
+        assertCount(AuthorizationFailureEvent.class, expected);
+    }
+
+    /**
+     * A fixed size buffer overwriting the oldest events, only accessed by the thread owning it.
+     */
+    private static class RingBuffer {
+        private final ApplicationEvent[] events = new ApplicationEvent[CAPACITY];
+        private long written;
+
+        private void add(ApplicationEvent event) {
+            events[(int) (written++ % CAPACITY)] = event;
+        }
+
+        private void clear() {
+            Arrays.fill(events, null);
+            written = 0;
+        }
+
+        private List<ApplicationEvent> toList() {
+            if (written == 0) {
+                return Collections.emptyList();
+            }
+
+            List<ApplicationEvent> retVal = new ArrayList<>(CAPACITY);
+            for (long i = Math.max(0, written - CAPACITY); i < written; i++) {
+                retVal.add(events[(int) (i % CAPACITY)]);
+            }
+            return retVal;
+        }
+    }
+}
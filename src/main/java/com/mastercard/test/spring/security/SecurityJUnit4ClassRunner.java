@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runners.BlockJUnit4ClassRunner;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.Statement;
+import org.springframework.beans.BeanInstantiationException;
+import org.springframework.beans.BeanUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.test.context.TestSecurityContextHolder;
+import org.springframework.security.test.context.support.WithSecurityContext;
+import org.springframework.security.test.context.support.WithSecurityContextFactory;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A lightweight alternative to {@link SpringSecurityJUnit4ClassRunner} for unit tests that do not need an
+ * ApplicationContext.  It is built on {@code BlockJUnit4ClassRunner} and runs a test method once for each
+ * mock/test user found on the test class and test method, including those expanded by a
+ * {@link WithUserVariants} factory, with the SecurityContext of the mock/test user established while its
+ * {@code @Before} methods, rules, test method and {@code @After} methods run.
+ * <p>
+ * WithSecurityContextFactory and WithUserVariantsFactory implementations are instantiated with their
+ * no-argument constructor and nothing is autowired, so user annotations such as {@link WithMockUser} and
+ * {@link WithMockUserMatrix} are supported while those requiring beans, such as {@link WithUserDetails}, fail
+ * the test.  {@link DistinctUserVariants} is supported.  Features relying on the ApplicationContext, such as
+ * {@link VerifyAuthorization} or {@link SharedUserFixture}, require {@link SpringSecurityJUnit4ClassRunner}, and
+ * test classes using {@link SampleUserVariants} or {@link WithOtherRolesDenied} fail to initialize.
+ * </p>
+ */
+public class SecurityJUnit4ClassRunner extends BlockJUnit4ClassRunner {
+
+    private final Map<Class<?>, Object> factories = new HashMap<>();
+
+    private List<FrameworkMethod> children;
+
+    private Map<FrameworkMethod, Integer> childIndexes;
+
+    /**
+     * Construct a new {@code SecurityJUnit4ClassRunner} to execute
+     * standard JUnit tests with multiple mock/test users.
+     * @param clazz the test class to be run
+     * @throws InitializationError if the test class is malformed.
+     */
+    public SecurityJUnit4ClassRunner(Class<?> clazz) throws InitializationError {
+        super(clazz);
+    }
+
+    /**
+     * Adds to {@code errors} if the annotations representing mock/test users are invalid, such as a
+     * {@link WithMockUserMatrix} with invalid bounds, so that the test class fails rather than the discovery
+     * of its child tests.
+     * @param errors The list of errors to append to.
+     */
+    @Override
+    protected void collectInitializationErrors(List<Throwable> errors) {
+        super.collectInitializationErrors(errors);
+        UserAnnotations.validate(getTestClass(), errors);
+        validateSpringOnlyAnnotations(errors);
+    }
+
+    /**
+     * Adds to {@code errors} if the test class uses {@link SampleUserVariants} or {@link WithOtherRolesDenied},
+     * which are only supported by {@link SpringSecurityJUnit4ClassRunner}, so that the test class fails rather
+     * than silently running every mock/test user or none of the denied users.
+     * @param errors The list of errors to append to.
+     */
+    private void validateSpringOnlyAnnotations(List<Throwable> errors) {
+        List<Annotation> annotations = new ArrayList<>(Arrays.asList(getTestClass().getAnnotations()));
+        for (FrameworkMethod method : getTestClass().getAnnotatedMethods(Test.class)) {
+            annotations.addAll(Arrays.asList(method.getAnnotations()));
+        }
+
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof SampleUserVariants || annotation instanceof WithOtherRolesDenied) {
+                errors.add(new Exception("@" + annotation.annotationType().getSimpleName() + " of " + getTestClass().getName()
+                        + " requires " + SpringSecurityJUnit4ClassRunner.class.getSimpleName()));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns a list of child tests that include a single test for each test/mock
+     * user combination.
+     * @return A list of FrameworkMethods that represent the child tests to
+     * be executed for the test class.
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    protected List<FrameworkMethod> getChildren() {
+        if (children != null) {
+            return children;
+        }
+
+        List<FrameworkMethod> retVal = new ArrayList<>();
+        List<Annotation> testClassAnnotations = UserAnnotations.find(getTestClass().getAnnotations());
+        boolean distinctUserVariants = getTestClass().getJavaClass().isAnnotationPresent(DistinctUserVariants.class);
+
+        int duplicates = 0;
+        for (FrameworkMethod method : super.getChildren()) {
+            List<Annotation> userAnnotations = new ArrayList<>(testClassAnnotations);
+            userAnnotations.addAll(UserAnnotations.find(method.getAnnotations()));
+
+            if (userAnnotations.isEmpty()) {
+                retVal.add(method);
+            }
+
+            Set<Annotation> distinct = null;
+            if (distinctUserVariants) {
+                //remove identical user specs before expanding them
+                distinct = new LinkedHashSet<>(userAnnotations);
+                duplicates += userAnnotations.size() - distinct.size();
+                userAnnotations = new ArrayList<>(distinct);
+            }
+
+            for (Annotation userAnnotation : userAnnotations) {
+                WithUserVariants withUserVariants = userAnnotation.annotationType().getAnnotation(WithUserVariants.class);
+                if (withUserVariants != null) {
+                    WithUserVariantsFactory factory = getFactory(withUserVariants.factory());
+                    Iterator<Annotation> variants = factory.createUserVariants(userAnnotation);
+                    while (variants.hasNext()) {
+                        Annotation variant = variants.next();
+                        if (distinct == null || distinct.add(variant)) {
+                            retVal.add(new AnnotationFrameworkMethod(method, variant));
+                        } else {
+                            duplicates++;
+                        }
+                    }
+                } else {
+                    retVal.add(new AnnotationFrameworkMethod(method, userAnnotation));
+                }
+            }
+        }
+
+        if (duplicates > 0) {
+            System.out.println("Eliminated " + duplicates + " redundant user variant executions from " + getTestClass().getName());
+        }
+
+        children = Collections.unmodifiableList(retVal);
+        childIndexes = SpringSecurityJUnit4ClassRunner.indexChildren(children);
+        return children;
+    }
+
+    /**
+     * Construct a description that nests the child tests with mock/test users under their test method.
+     * @return A Description defining the tests to be run by the receiver.
+     */
+    @Override
+    public Description getDescription() {
+        Description description = Description.createSuiteDescription(getName(), getRunnerAnnotations());
+
+        Map<String, Description> parentDescriptions = new HashMap<>();
+
+        for (FrameworkMethod child : getChildren()) {
+            if (child instanceof AnnotationFrameworkMethod) {
+                Description parent = parentDescriptions.get(child.getName());
+                if (parent == null) {
+                    parent = super.describeChild(child);
+                    parentDescriptions.put(child.getName(), parent);
+                    description.addChild(parent);
+                }
+                parent.addChild(describeChild(child));
+            } else {
+                description.addChild(super.describeChild(child));
+            }
+        }
+        return description;
+    }
+
+    /**
+     * Construct a Description that represents the method provided, identifying child tests with
+     * mock/test users the same way {@link SpringSecurityJUnit4ClassRunner} does.
+     * @param method The method to describe.
+     * @return The Description representing the provided method.
+     */
+    @Override
+    protected Description describeChild(FrameworkMethod method) {
+        if (method instanceof AnnotationFrameworkMethod) {
+            Integer index = childIndexes != null ? childIndexes.get(method) : null;
+            return Description.createTestDescription(method.getDeclaringClass().getName(), method.getMethod().getName(),
+                    new SpringSecurityJUnit4ClassRunner.TestIdentifier(method.toString(), index != null ? index : -1));
+        }
+        return super.describeChild(method);
+    }
+
+    /**
+     * Wraps the inherited methodBlock() to establish the SecurityContext of the mock/test user of the child test.
+     * @param method The method representing the child test.
+     * @return The Statement running the child test.
+     */
+    @Override
+    protected Statement methodBlock(FrameworkMethod method) {
+        return withSecurityContext(method, super.methodBlock(method));
+    }
+
+    /**
+     * Wrap the statement to establish the SecurityContext of the mock/test user of the child test while it runs.
+     * @param method The method representing the child test.
+     * @param statement The Statement running the child test.
+     * @return The wrapped Statement, or the statement itself if the child test has no mock/test user.
+     */
+    protected Statement withSecurityContext(FrameworkMethod method, Statement statement) {
+        if (!(method instanceof AnnotationFrameworkMethod)) {
+            return statement;
+        }
+
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                TestSecurityContextHolder.setContext(createSecurityContext(((AnnotationFrameworkMethod<?>) method).getAnnotation()));
+                try {
+                    statement.evaluate();
+                } finally {
+                    TestSecurityContextHolder.clearContext();
+                }
+            }
+        };
+    }
+
+    /**
+     * Create the SecurityContext for the mock/test user using the WithSecurityContextFactory of the user annotation.
+     * @param userAnnotation The annotation representing the mock/test user.
+     * @return The SecurityContext, which is empty if the factory does not provide one.
+     */
+    @SuppressWarnings("unchecked")
+    private SecurityContext createSecurityContext(Annotation userAnnotation) {
+        WithSecurityContext withSecurityContext = userAnnotation.annotationType().getAnnotation(WithSecurityContext.class);
+        WithSecurityContextFactory factory = getFactory(withSecurityContext.factory());
+
+        SecurityContext securityContext = factory.createSecurityContext(userAnnotation);
+        return securityContext != null ? securityContext : SecurityContextHolder.createEmptyContext();
+    }
+
+    /**
+     * Retrieve the instance of a factory, constructing it with its no-argument constructor on first use.
+     * @param clazz The factory class.
+     * @param <T> The type of the factory.
+     * @return The instance.
+     * @throws IllegalStateException if the factory cannot be constructed without an ApplicationContext.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T getFactory(Class<? extends T> clazz) {
+        return (T) factories.computeIfAbsent(clazz, factoryClass -> {
+            try {
+                return BeanUtils.instantiateClass(factoryClass);
+            } catch (BeanInstantiationException e) {
+                throw new IllegalStateException(factoryClass.getName() + " cannot be constructed without an ApplicationContext, "
+                        + "use SpringSecurityJUnit4ClassRunner", e);
+            }
+        });
+    }
+}
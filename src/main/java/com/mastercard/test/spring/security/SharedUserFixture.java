@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * When used with {@link SpringSecurityJUnit4ClassRunner} this annotation can be added to a test class
+ * so that the fixture of a test method is shared by all of its mock/test users.  The runner creates a single
+ * test instance and runs the {@code @Before} methods and the beforeTestMethod callbacks of Spring's
+ * TestExecutionListeners once, runs the test method once for each mock/test user, and then runs the
+ * {@code @After} methods and afterTestMethod callbacks once.  Each mock/test user is still reported as a
+ * separate test, and rules and timeouts apply to each of them.
+ *
+ * <p>The fixture is set up with the SecurityContext of the first mock/test user that is run.  Test methods
+ * must not depend on state modified by the test method for another mock/test user.  When the mock/test users
+ * of different methods are interleaved, as with {@link SampleUserVariants}, the fixture is set up again each
+ * time the test method changes.</p>
+ *
+ * <p>With {@link #savepoints()}, the data set up in the test-managed transaction of a {@code @Transactional}
+ * test method is also shared: the test method is run for each mock/test user in a savepoint that is rolled
+ * back afterwards, and the transaction itself is rolled back or committed once after the last mock/test user.
+ * This requires a transaction manager supporting nested transactions, such as DataSourceTransactionManager.</p>
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface SharedUserFixture {
+
+    /**
+     * Run the test method for each mock/test user in a savepoint of the test-managed transaction.
+     * @return true to roll back the changes of each mock/test user to a savepoint.
+     */
+    boolean savepoints() default false;
+}
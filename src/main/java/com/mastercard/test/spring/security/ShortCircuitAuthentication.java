@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * When used with {@link SpringSecurityJUnit4ClassRunner} this annotation can be added to a test class
+ * so that HTTP requests sent to the application, for example over a random port, can authenticate as the
+ * mock/test user being run by passing a token in a request header.  The runner adds a chain with a
+ * {@link TestAuthenticationFilter} ahead of each chain of the {@code springSecurityFilterChain}, which installs
+ * the Authentication of the mock/test user and skips the credential based authentication filters of the chain,
+ * while the authorization filters still apply.  The original chains are restored once the test class has been run.
+ *
+ * <pre>
+ * headers.set(TestAuthenticationFilter.HEADER_NAME, TestAuthenticationFilter.getCurrentToken());
+ * </pre>
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface ShortCircuitAuthentication {
+}
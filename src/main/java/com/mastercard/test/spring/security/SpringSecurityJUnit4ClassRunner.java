@@ -17,25 +17,54 @@ package com.mastercard.test.spring.security;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
+import java.util.Set;
+import org.junit.internal.runners.statements.Fail;
+import org.junit.rules.MethodRule;
+import org.junit.rules.RunRules;
+import org.junit.rules.TestRule;
 import org.junit.runner.Description;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.manipulation.NoTestsRemainException;
+import org.junit.runner.notification.Failure;
 import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.MultipleFailureException;
+import org.junit.runners.model.Statement;
 import org.springframework.beans.BeanUtils;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.test.context.support.WithSecurityContext;
+import org.springframework.security.test.context.TestSecurityContextHolder;
+import org.springframework.security.web.FilterChainProxy;
 import org.springframework.security.test.context.support.WithSecurityContextFactory;
+import org.springframework.security.test.context.support.WithSecurityContextTestExecutionListener;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.TestExecutionListener;
 import org.springframework.test.context.SpringSecurityTestBootstrapUtils;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.DirtiesContextBeforeModesTestExecutionListener;
+import org.springframework.test.context.support.DirtiesContextTestExecutionListener;
+import org.springframework.util.ClassUtils;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
 /**
@@ -50,6 +79,57 @@ import java.lang.reflect.Method;
  */
 public class SpringSecurityJUnit4ClassRunner extends SpringJUnit4ClassRunner {
 
+    private static final Statement EMPTY_STATEMENT = new Statement() {
+        @Override
+        public void evaluate() {
+        }
+    };
+
+    private static final boolean SERVLET_PRESENT = ClassUtils.isPresent("javax.servlet.Filter", SpringSecurityJUnit4ClassRunner.class.getClassLoader());
+
+    private static final boolean MOCK_MVC_PRESENT = SERVLET_PRESENT
+            && ClassUtils.isPresent("org.springframework.web.servlet.DispatcherServlet", SpringSecurityJUnit4ClassRunner.class.getClassLoader());
+
+    private static final boolean TRANSACTIONS_PRESENT = ClassUtils.isPresent("org.springframework.transaction.PlatformTransactionManager", SpringSecurityJUnit4ClassRunner.class.getClassLoader());
+
+    private final UserVariantSampler sampler;
+
+    private final boolean distinctUserVariants;
+
+    private final boolean shortCircuitAuthentication;
+
+    private final Map<ApplicationContext, List<FilterChainProxy>> shortCircuitChains = new IdentityHashMap<>();
+
+    private final boolean sharedUserFixture;
+
+    private final boolean userSavepoints;
+
+    private final List<Filter> filters = new ArrayList<>();
+
+    private Map<Method, Integer> remainingVariants = new HashMap<>();
+
+    private final Set<Method> startedMethods = new HashSet<>();
+
+    private boolean firstVariant = true;
+
+    private boolean lastVariant = true;
+
+    private SharedFixture sharedFixture;
+
+    private final List<Throwable> sharedFixtureFailures = new ArrayList<>();
+
+    private final Map<ApplicationContext, AuthorizationVerifier> authorizationVerifiers = new IdentityHashMap<>();
+
+    private boolean childrenRun;
+
+    private ApplicationContext loadedContext;
+
+    private List<FrameworkMethod> children;
+
+    private Map<FrameworkMethod, Integer> childIndexes;
+
+    private final ApplicationContextWarmUp warmUp;
+
     /**
      * Construct a new {@code SpringSecurityJUnit4ClassRunner} to execute
      * standard JUnit tests with multiple mock/test users.
@@ -57,24 +137,85 @@ public class SpringSecurityJUnit4ClassRunner extends SpringJUnit4ClassRunner {
      */
      public SpringSecurityJUnit4ClassRunner(Class<?> clazz) throws InitializationError {
         super(clazz);
+
+        SampleUserVariants sampleUserVariants = getTestClass().getJavaClass().getAnnotation(SampleUserVariants.class);
+        sampler = sampleUserVariants != null ? UserVariantSampler.from(sampleUserVariants) : null;
+        distinctUserVariants = getTestClass().getJavaClass().isAnnotationPresent(DistinctUserVariants.class);
+        shortCircuitAuthentication = getTestClass().getJavaClass().isAnnotationPresent(ShortCircuitAuthentication.class);
+        SharedUserFixture sharedUserFixtureAnnotation = getTestClass().getJavaClass().getAnnotation(SharedUserFixture.class);
+        sharedUserFixture = sharedUserFixtureAnnotation != null;
+        userSavepoints = sharedUserFixture && sharedUserFixtureAnnotation.savepoints() && TRANSACTIONS_PRESENT;
+
+        //the runner establishes the SecurityContext for each user, which the listener would otherwise replace
+        //with the context of a single method level user annotation
+        ListIterator<TestExecutionListener> listeners = getTestContextManager().getTestExecutionListeners().listIterator();
+        while (listeners.hasNext()) {
+            TestExecutionListener listener = listeners.next();
+            if (listener instanceof WithSecurityContextTestExecutionListener) {
+                listeners.remove();
+            } else if (listener instanceof DirtiesContextBeforeModesTestExecutionListener
+                    || listener instanceof DirtiesContextTestExecutionListener) {
+                //dirty the context once for all users of a test method rather than once for each user
+                listeners.set(new UserVariantDirtiesContextListener(listener));
+            }
+        }
+
+        warmUp = ApplicationContextWarmUp.isEnabled(getTestClass().getJavaClass())
+                ? new ApplicationContextWarmUp(SpringSecurityTestBootstrapUtils.getTestContext(getTestContextManager()))
+                : null;
+    }
+
+    /**
+     * Creates the test instance after registering a MockMvc configured with the Spring Security filter
+     * chain with a web ApplicationContext, see {@link MockMvcRegistrar}, so that it can be injected.
+     * @return The test instance.
+     * @throws Exception if the test instance cannot be created.
+     */
+    @Override
+    protected Object createTest() throws Exception {
+        if (MOCK_MVC_PRESENT) {
+            MockMvcRegistrar.register(getApplicationContext());
+        }
+        Object retVal = super.createTest();
+        //the test instance has been prepared with the ApplicationContext, so this does not load it
+        getApplicationContext();
+        return retVal;
+    }
+
+    /**
+     * Adds to {@code errors} if the annotations representing mock/test users are invalid, such as a
+     * {@link WithMockUserMatrix} with invalid bounds, so that the test class fails rather than the discovery
+     * of its child tests.
+     * @param errors The list of errors to append to.
+     */
+    @Override
+    protected void collectInitializationErrors(List<Throwable> errors) {
+        super.collectInitializationErrors(errors);
+        UserAnnotations.validate(getTestClass(), errors);
     }
 
     /**
      * Returns a list of child tests that include a single test for each test/mock
-     * user combination.
+     * user combination.  The user annotations are expanded once per runner, as JUnit calls this
+     * method several times, and JUnit 4 requires each variant to be a child test.
      * @return A list of FrameworkMethods that represent the child tests to
      * be executed for the test class.
      */
     @SuppressWarnings("unchecked")
     @Override
     protected List<FrameworkMethod> getChildren() {
+        if (children != null) {
+            return children;
+        }
+
         List<FrameworkMethod> retVal = new ArrayList<>();
 
         List<Annotation> testClassAnnotations = new ArrayList<>();
         for (Annotation annotation : getTestClass().getAnnotations()) {
-            testClassAnnotations.addAll(findUserAnnotations(annotation));
+            testClassAnnotations.addAll(UserAnnotations.find(annotation));
         }
 
+        int duplicates = 0;
         List<Annotation> userAnnotations;
         List<FrameworkMethod> methods = super.getChildren();
         for (FrameworkMethod method : methods) {
@@ -85,23 +226,206 @@ public class SpringSecurityJUnit4ClassRunner extends SpringJUnit4ClassRunner {
 
             //for all method annotations check to see if they have WithSecurityContext and include each one in the list of children
             for (Annotation annotation : method.getAnnotations()) {
-                userAnnotations.addAll(findUserAnnotations(annotation));
+                userAnnotations.addAll(UserAnnotations.find(annotation));
             }
 
             if (userAnnotations.size() > 0) {
-                AnnotationFrameworkMethod annotationFrameworkMethod;
+                Set<Annotation> distinct = null;
+                if (distinctUserVariants) {
+                    //remove identical user specs before expanding them
+                    distinct = new LinkedHashSet<>(userAnnotations);
+                    duplicates += userAnnotations.size() - distinct.size();
+                    userAnnotations = new ArrayList<>(distinct);
+                }
+
+                int firstVariant = retVal.size();
                 for (Annotation userAnnotation : userAnnotations) {
-                    annotationFrameworkMethod = new AnnotationFrameworkMethod(method, userAnnotation);
-                    retVal.add(annotationFrameworkMethod);
+                    duplicates += addUserVariants(retVal, method, userAnnotation, distinct);
                 }
+                addDeniedVariants(retVal, method, firstVariant);
             } else {
                 retVal.add(method);
             }
         }
 
+        if (duplicates > 0) {
+            System.out.println("Eliminated " + duplicates + " redundant user variant executions from " + getTestClass().getName());
+        }
+
+        if (sampler != null) {
+            sampler.shuffle(retVal);
+        }
+
+        children = Collections.unmodifiableList(retVal);
+        childIndexes = indexChildren(children);
+        return children;
+    }
+
+    /**
+     * Applies the filter to the child tests and retains it, so that the mock/test users of each test method
+     * that remain to be run can be counted when the child tests are run.
+     * @param filter The filter to apply.
+     * @throws NoTestsRemainException if no child tests remain.
+     */
+    @Override
+    public void filter(Filter filter) throws NoTestsRemainException {
+        super.filter(filter);
+        filters.add(filter);
+    }
+
+    /**
+     * Count the mock/test users of each test method that pass all filters applied to the runner, so that
+     * the last one run is still known when only some of them are run.
+     * @return The number of mock/test users of each test method.
+     */
+    private Map<Method, Integer> countVariants() {
+        Map<Method, Integer> retVal = new HashMap<>();
+        for (FrameworkMethod child : getChildren()) {
+            if (child instanceof AnnotationFrameworkMethod && shouldRun(describeChild(child))) {
+                retVal.merge(child.getMethod(), 1, Integer::sum);
+            }
+        }
+        return retVal;
+    }
+
+    private boolean shouldRun(Description description) {
+        for (Filter filter : filters) {
+            if (!filter.shouldRun(description)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add a child test to the provided list for each mock/test user represented by the user annotation.
+     * Annotations marked with {@link WithUserVariants} are expanded by their WithUserVariantsFactory one
+     * variant at a time, all others result in a single child test.  When a set of distinct user annotations
+     * is provided, expanded variants equal to one already present for the method are skipped.
+     * @param children The list of child tests to append to.
+     * @param method The test method.
+     * @param userAnnotation The annotation representing one or more mock/test users.
+     * @param distinct The user annotations already present for the method, or null to keep duplicates.
+     * @return The number of duplicate variants skipped.
+     */
+    @SuppressWarnings("unchecked")
+    private int addUserVariants(List<FrameworkMethod> children, FrameworkMethod method, Annotation userAnnotation, Set<Annotation> distinct) {
+        int retVal = 0;
+        WithUserVariants withUserVariants = userAnnotation.annotationType().getAnnotation(WithUserVariants.class);
+
+        if (withUserVariants != null) {
+            WithUserVariantsFactory factory = buildWithUserVariantsFactory(withUserVariants.factory());
+            Iterator<Annotation> variants = factory.createUserVariants(userAnnotation);
+            while (variants.hasNext()) {
+                Annotation variant = variants.next();
+                if (distinct == null || distinct.add(variant)) {
+                    children.add(new AnnotationFrameworkMethod(method, variant));
+                } else {
+                    retVal++;
+                }
+            }
+        } else {
+            children.add(new AnnotationFrameworkMethod(method, userAnnotation));
+        }
+
         return retVal;
     }
 
+    /**
+     * Add a child test expecting access to be denied for each role set generated from the
+     * {@link WithOtherRolesDenied} annotation of the method or test class, if present.  The permitted roles are
+     * those of the variants already added for the method, see {@link #addPermittedRoles(Set, Annotation)}.
+     * @param children The list of child tests to append to.
+     * @param method The test method.
+     * @param firstVariant The index of the first variant added for the method.
+     */
+    private void addDeniedVariants(List<FrameworkMethod> children, FrameworkMethod method, int firstVariant) {
+        WithOtherRolesDenied withOtherRolesDenied = method.getAnnotation(WithOtherRolesDenied.class);
+        if (withOtherRolesDenied == null) {
+            withOtherRolesDenied = getTestClass().getJavaClass().getAnnotation(WithOtherRolesDenied.class);
+        }
+        if (withOtherRolesDenied == null) {
+            return;
+        }
+
+        Set<String> permittedRoles = new HashSet<>();
+        for (FrameworkMethod child : children.subList(firstVariant, children.size())) {
+            addPermittedRoles(permittedRoles, ((AnnotationFrameworkMethod) child).getAnnotation());
+        }
+
+        for (String[] roles : new DeniedRoleSets(withOtherRolesDenied.roles(), permittedRoles)) {
+            Map<String, Object> attributes = new HashMap<>();
+            attributes.put("value", withOtherRolesDenied.username());
+            attributes.put("roles", roles);
+            WithMockUser deniedUser = AnnotationUtils.synthesizeAnnotation(attributes, WithMockUser.class, null);
+            children.add(new AccessDeniedFrameworkMethod<>(method, deniedUser));
+        }
+    }
+
+    /**
+     * Add the roles of a mock/test user without loading the ApplicationContext, as the child tests are
+     * discovered.  The roles are taken from the {@code authorities} or, if there are none, the {@code roles}
+     * attribute of the user annotation.  For user annotations without those attributes, such as
+     * {@link WithPersona}, the SecurityContext is created by the WithSecurityContextFactory when it has a
+     * no-argument constructor; the roles of users that require the ApplicationContext, such as
+     * {@link WithUserDetails}, are not known.
+     * @param permittedRoles The roles to add to, without the "ROLE_" prefix.
+     * @param userAnnotation The annotation representing the mock/test user.
+     */
+    @SuppressWarnings("unchecked")
+    private void addPermittedRoles(Set<String> permittedRoles, Annotation userAnnotation) {
+        Map<String, Object> attributes = AnnotationUtils.getAnnotationAttributes(userAnnotation);
+        Object authorities = attributes.get("authorities");
+        Object roles = attributes.get("roles");
+        if (authorities instanceof String[] && ((String[]) authorities).length > 0) {
+            for (String authority : (String[]) authorities) {
+                permittedRoles.add(authority.startsWith("ROLE_") ? authority.substring("ROLE_".length()) : authority);
+            }
+            return;
+        }
+        if (roles instanceof String[]) {
+            permittedRoles.addAll(Arrays.asList((String[]) roles));
+            return;
+        }
+
+        WithSecurityContext withSecurityContext = AnnotationUtils.findAnnotation(userAnnotation.annotationType(), WithSecurityContext.class);
+        if (withSecurityContext == null || !ClassUtils.hasConstructor(withSecurityContext.factory())) {
+            return;
+        }
+        Authentication authentication;
+        try {
+            WithSecurityContextFactory factory = BeanUtils.instantiateClass(withSecurityContext.factory());
+            SecurityContext securityContext = factory.createSecurityContext(userAnnotation);
+            authentication = securityContext != null ? securityContext.getAuthentication() : null;
+        } catch (RuntimeException e) {
+            //the factory requires the ApplicationContext, so the roles are not known
+            return;
+        }
+        if (authentication != null) {
+            for (GrantedAuthority authority : authentication.getAuthorities()) {
+                String role = authority.getAuthority();
+                if (role != null) {
+                    permittedRoles.add(role.startsWith("ROLE_") ? role.substring("ROLE_".length()) : role);
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieve the exception expected to be thrown by the test.  Child tests generated for
+     * {@link WithOtherRolesDenied} expect an AccessDeniedException, all others rely on the inherited
+     * getExpectedException() method.
+     * @param frameworkMethod The method representing the child test.
+     * @return The expected exception, or null if no exception is expected.
+     */
+    @Override
+    protected Class<? extends Throwable> getExpectedException(FrameworkMethod frameworkMethod) {
+        if (frameworkMethod instanceof AccessDeniedFrameworkMethod) {
+            return AccessDeniedException.class;
+        }
+        return super.getExpectedException(frameworkMethod);
+    }
+
     /**
      * Construct a description that properly nests the child tests with mock/test users.
      * The implementation relies on the inherited describeChild() method where possible.
@@ -135,7 +459,7 @@ public class SpringSecurityJUnit4ClassRunner extends SpringJUnit4ClassRunner {
      * @return True if the method's annotations contain user annotations, otherwise false.
      */
     private boolean containsUserAnnotation(FrameworkMethod method) {
-        return findUserAnnotations(method.getAnnotations()).size() > 0;
+        return UserAnnotations.find(method.getAnnotations()).size() > 0;
     }
 
     /**
@@ -149,7 +473,8 @@ public class SpringSecurityJUnit4ClassRunner extends SpringJUnit4ClassRunner {
         Description retVal;
         if (method instanceof AnnotationFrameworkMethod) {
             AnnotationFrameworkMethod withUserTestFrameworkMethod = (AnnotationFrameworkMethod) method;
-            retVal = Description.createTestDescription(method.getDeclaringClass().getName(), method.getMethod().getName(), new TestIdentifier(withUserTestFrameworkMethod.toString()));
+            retVal = Description.createTestDescription(method.getDeclaringClass().getName(), method.getMethod().getName(),
+                    new TestIdentifier(withUserTestFrameworkMethod.toString(), indexOf(method)));
         } else {
             retVal = super.describeChild(method);
         }
@@ -157,6 +482,31 @@ public class SpringSecurityJUnit4ClassRunner extends SpringJUnit4ClassRunner {
         return retVal;
     }
 
+    /**
+     * Retrieve the position of a child test among the child tests of the runner.
+     * @param method The method representing the child test.
+     * @return The position, or -1 if the method is not a child test of the runner.
+     */
+    private int indexOf(FrameworkMethod method) {
+        getChildren();
+        Integer retVal = childIndexes.get(method);
+        return retVal != null ? retVal : -1;
+    }
+
+    /**
+     * Map each child test to its position.  The child tests are compared by identity, as mock/test users
+     * repeated on a test method result in equal child tests.
+     * @param children The child tests.
+     * @return The position of each child test.
+     */
+    static Map<FrameworkMethod, Integer> indexChildren(List<FrameworkMethod> children) {
+        Map<FrameworkMethod, Integer> retVal = new IdentityHashMap<>();
+        for (int i = 0; i < children.size(); i++) {
+            retVal.put(children.get(i), i);
+        }
+        return retVal;
+    }
+
     /**
      * Run the test corresponding to the child, which can be assumed to be an element
      * of the list returned by getChildren(). Ensures that relevant test events are
@@ -164,117 +514,454 @@ public class SpringSecurityJUnit4ClassRunner extends SpringJUnit4ClassRunner {
      *
      * The implementation wraps the inherited runChild() method to insert the mock/test
      * user into the SecurityContext prior to execution and removes it after execution.
+     * When the test class is annotated with {@link SampleUserVariants}, mock/test user variants
+     * that would start after the budget is exhausted are reported as ignored.  Test methods annotated
+     * with {@link VerifyAuthorization} only evaluate the method security of the secured method.
+     * The events recorded by {@link SecurityEventRecorder} are cleared before each mock/test user.
+     * When the test class is annotated with {@link ShortCircuitAuthentication}, the token of the
+     * mock/test user is registered with the {@link TestAuthenticationFilter} while it is run.  The
+     * {@link UserSessionPool} provides the session of the mock/test user while it is run.  When the
+     * test class is annotated with {@link SharedUserFixture}, the mock/test users of a test method share
+     * a single fixture.
      *
      * @param frameworkMethod The method representing the child test.
      * @param notifier The notifier for the test execution.
      */
-    @SuppressWarnings("unchecked")
     @Override
     protected void runChild(FrameworkMethod frameworkMethod, RunNotifier notifier) {
+        if (sampler != null && frameworkMethod instanceof AnnotationFrameworkMethod && !sampler.tryStart()) {
+            notifier.fireTestIgnored(describeChild(frameworkMethod));
+            return;
+        }
+
+        if (!isIgnored(frameworkMethod)) {
+            childrenRun = true;
+        }
+
         if (frameworkMethod instanceof AnnotationFrameworkMethod) {
-            AnnotationFrameworkMethod annotationFrameworkMethod = (AnnotationFrameworkMethod) frameworkMethod;
+            firstVariant = startedMethods.add(frameworkMethod.getMethod());
+            Integer remaining = remainingVariants.merge(frameworkMethod.getMethod(), -1, Integer::sum);
+            lastVariant = remaining == null || remaining <= 0;
+        } else {
+            firstVariant = true;
+            lastVariant = true;
+        }
 
-            Annotation userAnnotation = annotationFrameworkMethod.getAnnotation();
-            WithSecurityContext withSecurityContext = userAnnotation.annotationType().getAnnotation(WithSecurityContext.class);
+        if (frameworkMethod instanceof AnnotationFrameworkMethod) {
+            TestSecurityContextHolder.setContext(createSecurityContext((AnnotationFrameworkMethod) frameworkMethod));
+            if (!isIgnored(frameworkMethod)) {
+                SecurityEventRecorder.register(getApplicationContext());
+                SecurityEventRecorder.clear();
+                if (shortCircuitAuthentication) {
+                    shortCircuitChains.computeIfAbsent(getApplicationContext(), TestAuthenticationFilter::install);
+                    TestAuthenticationFilter.register(SecurityContextHolder.getContext().getAuthentication());
+                }
+                if (SERVLET_PRESENT) {
+                    UserSessionPool.begin(getTestClass().getJavaClass(), ((AnnotationFrameworkMethod) frameworkMethod).getAnnotation(),
+                            SecurityContextHolder.getContext());
+                }
+            }
+        }
 
-            Class<? extends WithSecurityContextFactory<? extends Annotation>> clazz = withSecurityContext.factory();
+        VerifyAuthorization verifyAuthorization = frameworkMethod.getAnnotation(VerifyAuthorization.class);
+        if (verifyAuthorization != null && frameworkMethod instanceof AnnotationFrameworkMethod) {
+            verifyAuthorization(frameworkMethod, verifyAuthorization, notifier);
+        } else if (sharedUserFixture && frameworkMethod instanceof AnnotationFrameworkMethod) {
+            runWithSharedFixture(frameworkMethod, notifier);
+        } else {
+            super.runChild(frameworkMethod, notifier);
+        }
 
-            WithSecurityContextFactory withSecurityContextFactory = buildWithSecurityContextFactory(clazz);
+        if (shortCircuitAuthentication) {
+            TestAuthenticationFilter.unregister();
+        }
+        if (SERVLET_PRESENT && frameworkMethod instanceof AnnotationFrameworkMethod) {
+            UserSessionPool.end();
+        }
+        TestSecurityContextHolder.clearContext();
+    }
 
-            SecurityContext securityContext = null;
-            if (withSecurityContextFactory != null) {
-                securityContext = withSecurityContextFactory.createSecurityContext(userAnnotation);
+    /**
+     * Wraps the inherited classBlock() to wait for the ApplicationContext being loaded on a background thread,
+     * and to start loading the ApplicationContext of the next test class annotated with
+     * {@link WarmUpApplicationContext} while the test class runs.
+     * @param notifier The notifier for the test execution.
+     * @return The Statement executing the test class.
+     */
+    @Override
+    protected Statement classBlock(RunNotifier notifier) {
+        Statement statement = super.classBlock(notifier);
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                if (warmUp != null) {
+                    warmUp.await();
+                }
+                ApplicationContextWarmUp.startNext();
+                statement.evaluate();
             }
+        };
+    }
 
-            if (securityContext == null) {
-                securityContext = SecurityContextHolder.createEmptyContext();
-            }
-            SecurityContextHolder.setContext(securityContext);
+    /**
+     * Flush each {@link AuthorizationCoverageRecorder} in the ApplicationContext used by the child tests,
+     * so that the coverage of the test class is on disk even if the JVM does not close the ApplicationContext.
+     * @throws IOException if a recorder cannot be flushed.
+     */
+    private void flushAuthorizationCoverage() throws IOException {
+        if (!isLoadedContextActive()) {
+            return;
         }
-        super.runChild(frameworkMethod, notifier);
 
-        SecurityContextHolder.clearContext();
+        for (AuthorizationCoverageRecorder recorder : loadedContext.getBeansOfType(AuthorizationCoverageRecorder.class).values()) {
+            recorder.flush();
+        }
     }
 
     /**
-     * Construct a new WithSecurityContextFactory for the provided class name.
-     * @param clazz The name of the class implementing the WithSecurityContextFactory interface.
-     * @return The instance if it could be constructed, otherwise null.
+     * Determine whether child tests have been run with an ApplicationContext that is still active.  A closed
+     * context has already flushed its recorders, and the context is never loaded again for reporting.
+     * @return true if the ApplicationContext used by the child tests can be inspected.
      */
-    private WithSecurityContextFactory buildWithSecurityContextFactory(Class<? extends WithSecurityContextFactory<? extends Annotation>> clazz) {
-        WithSecurityContextFactory retVal;
+    private boolean isLoadedContextActive() {
+        return childrenRun && loadedContext != null && (!(loadedContext instanceof ConfigurableApplicationContext)
+                || ((ConfigurableApplicationContext) loadedContext).isActive());
+    }
 
-        ApplicationContext context = getApplicationContext(getTestClass().getJavaClass());
+    /**
+     * Wraps the inherited childrenInvoker() to count the mock/test users of each test method that remain
+     * to be run once all filters have been applied, to tear down the fixture shared by the mock/test users of
+     * the last test method when the test class is annotated with {@link SharedUserFixture}, to restore the
+     * security filter chains changed for {@link ShortCircuitAuthentication}, to discard the sessions of the
+     * {@link UserSessionPool} and to flush any
+     * {@link AuthorizationCoverageRecorder} once all child tests have been run.  This is done before the
+     * after class callbacks, which may close the ApplicationContext when the test class is annotated
+     * with {@code @DirtiesContext}.
+     * @param notifier The notifier for the test execution.
+     * @return The Statement running the child tests.
+     */
+    @Override
+    protected Statement childrenInvoker(RunNotifier notifier) {
+        Statement statement = super.childrenInvoker(notifier);
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                remainingVariants = countVariants();
+                try {
+                    if (sharedUserFixture) {
+                        try {
+                            statement.evaluate();
+                        } finally {
+                            finishSharedFixture(sharedFixtureFailures);
+                        }
+                        MultipleFailureException.assertEmpty(sharedFixtureFailures);
+                    } else {
+                        statement.evaluate();
+                    }
+                } finally {
+                    shortCircuitChains.values().forEach(TestAuthenticationFilter::uninstall);
+                    shortCircuitChains.clear();
+                    authorizationVerifiers.clear();
+                    if (SERVLET_PRESENT) {
+                        UserSessionPool.clear(getTestClass().getJavaClass());
+                    }
+                    flushAuthorizationCoverage();
+                }
+            }
+        };
+    }
 
-        try {
-            retVal = context.getAutowireCapableBeanFactory().createBean(clazz);
-        } catch (IllegalStateException e) {
-            return BeanUtils.instantiateClass(clazz);
-        } catch (Exception e) {
-            throw new RuntimeException("Unable to construct an instance of " + clazz.getName(), e);
+    /**
+     * Run the test method for a mock/test user with the fixture shared by all mock/test users of the
+     * test method, setting up the fixture for the first mock/test user and tearing it down after the
+     * last one.  With {@link SharedUserFixture#savepoints()} each mock/test user is run in a savepoint of
+     * the test-managed transaction.  Failures of tearing down the fixture are reported for the last mock/test user or, if it
+     * is not run, for the test class.
+     * @param frameworkMethod The method representing the child test.
+     * @param notifier The notifier for the test execution.
+     */
+    private void runWithSharedFixture(FrameworkMethod frameworkMethod, RunNotifier notifier) {
+        Description description = describeChild(frameworkMethod);
+        if (isTestMethodIgnored(frameworkMethod)) {
+            notifier.fireTestIgnored(description);
+            return;
+        }
+
+        if (sharedFixture == null || !sharedFixture.method.equals(frameworkMethod.getMethod())) {
+            finishSharedFixture(sharedFixtureFailures);
+            sharedFixture = new SharedFixture(frameworkMethod);
+        }
+
+        SharedFixture fixture = sharedFixture;
+        Statement statement;
+        if (fixture.failure != null) {
+            statement = new Fail(fixture.failure);
+        } else {
+            statement = methodInvoker(frameworkMethod, fixture.testInstance);
+            statement = possiblyExpectingExceptions(frameworkMethod, fixture.testInstance, statement);
+            statement = withTestRules(frameworkMethod, fixture.testInstance, statement);
+            statement = withPotentialTimeout(frameworkMethod, fixture.testInstance, statement);
+            if (userSavepoints) {
+                statement = UserSavepoints.withSavepoint(SpringSecurityTestBootstrapUtils.getTestContext(getTestContextManager()), statement);
+            }
+        }
+
+        if (lastVariant) {
+            Statement variant = statement;
+            statement = new Statement() {
+                @Override
+                public void evaluate() throws Throwable {
+                    List<Throwable> errors = new ArrayList<>();
+                    try {
+                        variant.evaluate();
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                    finishSharedFixture(errors);
+                    MultipleFailureException.assertEmpty(errors);
+                }
+            };
+        }
+
+        runLeaf(statement, description, notifier);
+    }
+
+    /**
+     * Tear down the fixture shared by the mock/test users of the current test method, if any.
+     * @param errors The list failures of tearing down the fixture are added to.
+     */
+    private void finishSharedFixture(List<Throwable> errors) {
+        if (sharedFixture != null) {
+            SharedFixture fixture = sharedFixture;
+            sharedFixture = null;
+            if (fixture.testInstance != null) {
+                try {
+                    withAfters(fixture.frameworkMethod, fixture.testInstance, EMPTY_STATEMENT).evaluate();
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }
         }
+    }
 
+    /**
+     * Apply the rules of the test instance to the statement, as the inherited methodBlock() would.
+     * @param frameworkMethod The method representing the child test.
+     * @param testInstance The test instance.
+     * @param statement The statement to wrap.
+     * @return The statement applying the rules.
+     */
+    private Statement withTestRules(FrameworkMethod frameworkMethod, Object testInstance, Statement statement) {
+        List<TestRule> testRules = getTestRules(testInstance);
+        Statement retVal = statement;
+        for (MethodRule rule : rules(testInstance)) {
+            if (!testRules.contains(rule)) {
+                retVal = rule.apply(retVal, frameworkMethod, testInstance);
+            }
+        }
+        if (!testRules.isEmpty()) {
+            retVal = new RunRules(retVal, testRules, describeChild(frameworkMethod));
+        }
         return retVal;
     }
 
     /**
-     * Locate any annotations representing mock/test users located within the provided annotations.
-     * The search for annotations is executed recursively.
-     * @param annotations The annotations to investigate.
-     * @return A list of annotations that represent mock/test users.
+     * Dirties the ApplicationContext before the first or after the last mock/test user of a test method
+     * annotated with {@code @DirtiesContext}, instead of for each of them, unless the test method or test
+     * class is annotated with {@link DirtiesContextPerUser}.  When the mock/test users are sampled with
+     * {@link SampleUserVariants} the ApplicationContext is dirtied for each of them.
      */
-    private List<Annotation> findUserAnnotations(Annotation[] annotations) {
-        List<Annotation> retVal = new ArrayList<>();
+    private class UserVariantDirtiesContextListener implements TestExecutionListener {
+        private final TestExecutionListener delegate;
 
-        for (Annotation annotation : annotations) {
-            retVal.addAll(findUserAnnotations(annotation));
+        /**
+         * Wrap a listener dirtying the ApplicationContext.
+         * @param delegate The listener.
+         */
+        private UserVariantDirtiesContextListener(TestExecutionListener delegate) {
+            this.delegate = delegate;
         }
 
-        return retVal;
+        @Override
+        public void beforeTestClass(TestContext testContext) throws Exception {
+            delegate.beforeTestClass(testContext);
+        }
+
+        @Override
+        public void prepareTestInstance(TestContext testContext) throws Exception {
+            delegate.prepareTestInstance(testContext);
+        }
+
+        @Override
+        public void beforeTestMethod(TestContext testContext) throws Exception {
+            if (firstVariant || isDirtiedPerUser(testContext)) {
+                delegate.beforeTestMethod(testContext);
+            }
+        }
+
+        @Override
+        public void afterTestMethod(TestContext testContext) throws Exception {
+            if (lastVariant || isDirtiedPerUser(testContext)) {
+                delegate.afterTestMethod(testContext);
+            }
+        }
+
+        @Override
+        public void afterTestClass(TestContext testContext) throws Exception {
+            delegate.afterTestClass(testContext);
+        }
+
+        /**
+         * Check whether the ApplicationContext is dirtied for each mock/test user of the test method.
+         * @param testContext The TestContext of the test method.
+         * @return true if it is dirtied for each mock/test user.
+         */
+        private boolean isDirtiedPerUser(TestContext testContext) {
+            return sampler != null
+                    || AnnotationUtils.findAnnotation(testContext.getTestMethod(), DirtiesContextPerUser.class) != null
+                    || AnnotationUtils.findAnnotation(testContext.getTestClass(), DirtiesContextPerUser.class) != null;
+        }
     }
 
     /**
-     * Locate all annotations representing mock/test users located within the provided annotation.
-     * The search for annotations is executed recursively.
-     * @param annotation The annotation to investigate.
-     * @return A list of annotations that represent mock/test users.
+     * The test instance of a test method whose fixture is shared by its mock/test users.
      */
-    private List<Annotation> findUserAnnotations(Annotation annotation) {
-        return findUserAnnotationsRecursively(annotation, new ArrayList<>());
+    private class SharedFixture {
+        private final Method method;
+        private final FrameworkMethod frameworkMethod;
+        private Object testInstance;
+        private Throwable failure;
+
+        /**
+         * Create the test instance and set up the fixture.
+         * @param frameworkMethod The method representing the first child test of the test method.
+         */
+        private SharedFixture(FrameworkMethod frameworkMethod) {
+            this.method = frameworkMethod.getMethod();
+            this.frameworkMethod = frameworkMethod;
+            try {
+                testInstance = createTest();
+                withBefores(frameworkMethod, testInstance, EMPTY_STATEMENT).evaluate();
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
     }
 
     /**
-     * Locate all annotations representing mock/test users located within the provided annotation by searching
-     * recursively.  In order to prevent issues with self-referencing annotations (i.e. @Documented), a list
-     * of previously checked annotations must be provided so that they can be ignored.
-     * @param annotation The annotation to investigate.
-     * @param ignoreList A list of Annotations that should be ignored when searching recursively.
-     * @return A list of annotations that represent mock/test users.
+     * Create the SecurityContext for the mock/test user of the child test using the WithSecurityContextFactory
+     * of the user annotation.  The authorities of a {@link WithMockUser} are expanded through the RoleHierarchy
+     * when the test method or test class is annotated with {@link ExpandRoleHierarchy}.
+     * @param annotationFrameworkMethod The method representing the child test.
+     * @return The SecurityContext, which is empty if the factory does not provide one.
      */
-    private List<Annotation> findUserAnnotationsRecursively(Annotation annotation, List<Annotation> ignoreList) {
-        List<Annotation> retVal = new ArrayList<>();
+    @SuppressWarnings("unchecked")
+    private SecurityContext createSecurityContext(AnnotationFrameworkMethod annotationFrameworkMethod) {
+        Annotation userAnnotation = annotationFrameworkMethod.getAnnotation();
+        WithSecurityContext withSecurityContext = userAnnotation.annotationType().getAnnotation(WithSecurityContext.class);
 
-        if (annotation.annotationType().getAnnotation(WithSecurityContext.class) != null) {
-            retVal.add(annotation);
-        } else {
-            List<Annotation> repeatedAnnoations = findRepeatableAnnotations(annotation);
-            if (repeatedAnnoations.size() > 0) {
-                for (Annotation child : repeatedAnnoations) {
-                    retVal.addAll(findUserAnnotationsRecursively(child, ignoreList));
-                }
-            } else {
-                for (Annotation child : annotation.annotationType().getDeclaredAnnotations()) {
-                    if (!ignoreList.contains(child)) {
-                        ignoreList.add(child);
-                        retVal.addAll(findUserAnnotationsRecursively(child, ignoreList));
-                    }
-                }
+        Class<? extends WithSecurityContextFactory<? extends Annotation>> clazz = withSecurityContext.factory();
+
+        WithSecurityContextFactory withSecurityContextFactory = buildWithSecurityContextFactory(clazz);
+
+        SecurityContext securityContext = null;
+        if (withSecurityContextFactory instanceof WithMockUserSecurityContextFactory && isRoleHierarchyExpanded(annotationFrameworkMethod)) {
+            securityContext = ((WithMockUserSecurityContextFactory) withSecurityContextFactory).createSecurityContext((WithMockUser) userAnnotation, true);
+        } else if (withSecurityContextFactory != null) {
+            securityContext = withSecurityContextFactory.createSecurityContext(userAnnotation);
+        }
+
+        if (securityContext == null) {
+            securityContext = SecurityContextHolder.createEmptyContext();
+        }
+        return securityContext;
+    }
+
+    /**
+     * Determine whether the authorities of the mock/test user are expanded through the RoleHierarchy.
+     * @param frameworkMethod The method representing the child test.
+     * @return true if the test method or test class is annotated with {@link ExpandRoleHierarchy}.
+     */
+    private boolean isRoleHierarchyExpanded(FrameworkMethod frameworkMethod) {
+        return frameworkMethod.getAnnotation(ExpandRoleHierarchy.class) != null
+                || getTestClass().getJavaClass().isAnnotationPresent(ExpandRoleHierarchy.class);
+    }
+
+    /**
+     * Verify the method security of the secured method identified by {@link VerifyAuthorization} for the
+     * mock/test user of the child test instead of executing the test method.  Access is expected to be
+     * denied for {@link AccessDeniedFrameworkMethod} children and granted for all others.  The AuthorizationVerifier
+     * is looked up for the current ApplicationContext, so a context reloaded by DirtiesContext is never verified
+     * against the MethodSecurityInterceptor of the closed context.
+     * @param frameworkMethod The method representing the child test.
+     * @param verifyAuthorization The annotation identifying the secured method.
+     * @param notifier The notifier for the test execution.
+     */
+    private void verifyAuthorization(FrameworkMethod frameworkMethod, VerifyAuthorization verifyAuthorization, RunNotifier notifier) {
+        Description description = describeChild(frameworkMethod);
+        if (isIgnored(frameworkMethod)) {
+            notifier.fireTestIgnored(description);
+            return;
+        }
+
+        notifier.fireTestStarted(description);
+        try {
+            AuthorizationVerifier authorizationVerifier = authorizationVerifiers.computeIfAbsent(getApplicationContext(), AuthorizationVerifier::new);
+
+            boolean expected = !(frameworkMethod instanceof AccessDeniedFrameworkMethod);
+            boolean actual = authorizationVerifier.isGranted(SecurityContextHolder.getContext().getAuthentication(), verifyAuthorization);
+            if (expected != actual) {
+                throw new AssertionError("Expected access to " + verifyAuthorization.type().getSimpleName() + "."
+                        + verifyAuthorization.method() + " to be " + (expected ? "granted" : "denied") + " for "
+                        + ((AnnotationFrameworkMethod) frameworkMethod).getAnnotation());
             }
+        } catch (Throwable e) {
+            notifier.fireTestFailure(new Failure(description, e));
+        } finally {
+            notifier.fireTestFinished(description);
+        }
+    }
+
+    /**
+     * Construct a new WithSecurityContextFactory for the provided class name.
+     * @param clazz The name of the class implementing the WithSecurityContextFactory interface.
+     * @return The instance if it could be constructed, otherwise null.
+     */
+    private WithSecurityContextFactory buildWithSecurityContextFactory(Class<? extends WithSecurityContextFactory<? extends Annotation>> clazz) {
+        WithSecurityContextFactory retVal;
+
+        ApplicationContext context = getApplicationContext();
+
+        try {
+            retVal = context.getAutowireCapableBeanFactory().createBean(clazz);
+        } catch (IllegalStateException e) {
+            return BeanUtils.instantiateClass(clazz);
+        } catch (Exception e) {
+            throw new RuntimeException("Unable to construct an instance of " + clazz.getName(), e);
         }
 
         return retVal;
     }
 
+    /**
+     * Construct a new WithUserVariantsFactory for the provided class.  Factories with a no-argument constructor
+     * are instantiated directly so that discovering the tests does not require the ApplicationContext; all
+     * others are constructed through the ApplicationContext so that their dependencies can be autowired.
+     * @param clazz The class implementing the WithUserVariantsFactory interface.
+     * @return The instance.
+     */
+    private WithUserVariantsFactory buildWithUserVariantsFactory(Class<? extends WithUserVariantsFactory<? extends Annotation>> clazz) {
+        if (ClassUtils.hasConstructor(clazz)) {
+            return BeanUtils.instantiateClass(clazz);
+        }
+
+        try {
+            return getApplicationContext().getAutowireCapableBeanFactory().createBean(clazz);
+        } catch (Exception e) {
+            throw new RuntimeException("Unable to construct an instance of " + clazz.getName(), e);
+        }
+    }
+
     /**
      * Retrieve the ApplicationContext for the provided test Class.
      * @param clazz The class under test.
@@ -285,52 +972,49 @@ public class SpringSecurityJUnit4ClassRunner extends SpringJUnit4ClassRunner {
     }
 
     /**
-     * Locate repeated annoations within a Java 8 annotation container.  If the annotation
-     * provided is a container for annotations with the @Repeatable annotation, then the contained
-     * annotations are returned.
-     * @param annotation The annotation to investigate for repeated annotations.
-     * @return A list containing repeated annotations if present.
+     * Retrieve the ApplicationContext for the test class from the TestContext managed by the runner,
+     * rather than bootstrapping a new TestContext.  The context is retained for reporting once all
+     * child tests have been run.
+     * @return The ApplicationContext.
      */
-    private List<Annotation> findRepeatableAnnotations(Annotation annotation) {
-        List<Annotation> retVal = new ArrayList<>();
-
-        for (Method method : annotation.annotationType().getMethods()) {
-            if ("value".equals(method.getName())) {
-                if (method.getReturnType().isArray()) {
-                    try {
-                        Annotation[] types = (Annotation[]) method.invoke(annotation);
-                        retVal.addAll(Arrays.asList(types));
-                    } catch (IllegalAccessException | InvocationTargetException | ClassCastException e) {
-                        //ignore, must not be a container for annotations
-                    }
-                }
-                break;
-            }
-        }
-
-        return retVal;
+    private ApplicationContext getApplicationContext() {
+        loadedContext = SpringSecurityTestBootstrapUtils.getTestContext(getTestContextManager()).getApplicationContext();
+        return loadedContext;
     }
 
-
     /**
      * Simple Serializable class to use as the unique identifier for child tests
-     * that roll up under a single method name.
+     * that roll up under a single method name.  The index of the child test distinguishes
+     * mock/test users that are repeated with the same name.
      */
     public static class TestIdentifier implements Serializable {
         static final long serialVersionUID = 1L;
 
         private final String name;
 
+        private final int index;
+
         /**
          * Construct a new TestIdentifier with the provided name.
          * @param name The name for the identifier.
          * @throws IllegalArgumentException if the name provided is null.
          */
         public TestIdentifier(String name) {
+            this(name, -1);
+        }
+
+        /**
+         * Construct a new TestIdentifier with the provided name and index.
+         * @param name The name for the identifier.
+         * @param index The position of the child test among the child tests of the runner, or -1 if unknown.
+         * @throws IllegalArgumentException if the name provided is null.
+         */
+        public TestIdentifier(String name, int index) {
             if (name == null) {
                 throw new IllegalArgumentException("The name provided is null");
             }
             this.name = name;
+            this.index = index;
         }
 
         /**
@@ -340,6 +1024,36 @@ public class SpringSecurityJUnit4ClassRunner extends SpringJUnit4ClassRunner {
         public String getName() {
             return name;
         }
+
+        /**
+         * Retrieve the position of the child test among the child tests of the runner.
+         * @return The index, or -1 if unknown.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Determine if the provided object is equal to the current instance, so that the Descriptions
+         * of a child test created separately, such as by a Filter, match while the Descriptions of
+         * different child tests for identical mock/test users do not.
+         * @param obj The object to compare.
+         * @return True if the object is a TestIdentifier with the same name and index, otherwise false.
+         */
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof TestIdentifier && name.equals(((TestIdentifier) obj).name)
+                    && index == ((TestIdentifier) obj).index;
+        }
+
+        /**
+         * Calculate the hashcode for the instance.
+         * @return The hashcode.
+         */
+        @Override
+        public int hashCode() {
+            return name.hashCode() * 31 + index;
+        }
     }
 
 }
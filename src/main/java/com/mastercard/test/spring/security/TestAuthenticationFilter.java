@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.security.web.DefaultSecurityFilterChain;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.AbstractAuthenticationProcessingFilter;
+import org.springframework.security.web.authentication.AnonymousAuthenticationFilter;
+import org.springframework.security.web.authentication.preauth.AbstractPreAuthenticatedProcessingFilter;
+import org.springframework.security.web.authentication.rememberme.RememberMeAuthenticationFilter;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+import org.springframework.security.web.authentication.www.DigestAuthenticationFilter;
+import org.springframework.security.web.context.NullSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextPersistenceFilter;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A filter that authenticates requests carrying the token of a mock/test user in the {@link #HEADER_NAME} header
+ * with the Authentication the runner has already created for that user, as enabled by
+ * {@link ShortCircuitAuthentication}.  Requests authenticated this way are processed by a copy of the matching
+ * chain that skips the credential based authentication filters, such as form, HTTP Basic and remember-me
+ * authentication.  Requests without a known token are processed by the original chains.
+ * <p>
+ * The SecurityContext of a request authenticated by a token is not loaded from or saved to the HttpSession, so
+ * that requests presenting only the session of such a request are not authenticated once the token has been
+ * unregistered.
+ * </p>
+ * <p>
+ * The tokens are registered by {@link SpringSecurityJUnit4ClassRunner} for the duration of each mock/test user
+ * variant and are shared with the threads serving the requests within the JVM.
+ * </p>
+ */
+public class TestAuthenticationFilter extends OncePerRequestFilter {
+
+    /**
+     * The name of the request header carrying the token.
+     */
+    public static final String HEADER_NAME = "X-Test-Authentication";
+
+    private static final List<Class<?>> CREDENTIAL_FILTERS = Arrays.asList(AbstractAuthenticationProcessingFilter.class,
+            BasicAuthenticationFilter.class, DigestAuthenticationFilter.class, RememberMeAuthenticationFilter.class,
+            AbstractPreAuthenticatedProcessingFilter.class, AnonymousAuthenticationFilter.class);
+
+    private static final Map<String, Authentication> AUTHENTICATIONS = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<String> CURRENT_TOKEN = new ThreadLocal<>();
+
+    private static final Map<FilterChainProxy, Installation> INSTALLATIONS = new IdentityHashMap<>();
+
+    private static final Field FILTER_CHAINS_FIELD = findFilterChainsField();
+
+    private static Field findFilterChainsField() {
+        Field retVal = ReflectionUtils.findField(FilterChainProxy.class, "filterChains", List.class);
+        if (retVal != null) {
+            ReflectionUtils.makeAccessible(retVal);
+        }
+        return retVal;
+    }
+
+    /**
+     * @return The token of the mock/test user being run on the current thread, or null if there is none.
+     */
+    public static String getCurrentToken() {
+        return CURRENT_TOKEN.get();
+    }
+
+    /**
+     * Register the Authentication of the mock/test user being run on the current thread.
+     * @param authentication The Authentication, which may be null.
+     */
+    static void register(Authentication authentication) {
+        unregister();
+        if (authentication != null) {
+            String token = UUID.randomUUID().toString();
+            AUTHENTICATIONS.put(token, authentication);
+            CURRENT_TOKEN.set(token);
+        }
+    }
+
+    /**
+     * Remove the Authentication of the mock/test user being run on the current thread.
+     */
+    static void unregister() {
+        String token = CURRENT_TOKEN.get();
+        if (token != null) {
+            AUTHENTICATIONS.remove(token);
+            CURRENT_TOKEN.remove();
+        }
+    }
+
+    /**
+     * Add a chain for requests carrying a registered token ahead of each chain of the FilterChainProxy beans of
+     * the ApplicationContext.  Each added chain matches the requests of the original chain and consists of its
+     * filters, without the credential based authentication filters, with a TestAuthenticationFilter following a
+     * SecurityContextPersistenceFilter that does not use the HttpSession.  The original chains are not modified,
+     * so their filters can still be found by {@code WebTestUtils}, and are restored by {@link #uninstall(List)}
+     * once each test class that installed the chains has been run.
+     * @param context The ApplicationContext.
+     * @return The FilterChainProxy beans the chains have been added to.
+     */
+    static List<FilterChainProxy> install(ApplicationContext context) {
+        List<FilterChainProxy> retVal = new ArrayList<>();
+        synchronized (INSTALLATIONS) {
+            for (FilterChainProxy filterChainProxy : context.getBeansOfType(FilterChainProxy.class).values()) {
+                Installation installation = INSTALLATIONS.get(filterChainProxy);
+                if (installation == null) {
+                    List<SecurityFilterChain> originalChains = getFilterChains(filterChainProxy);
+                    if (originalChains == null) {
+                        continue;
+                    }
+
+                    List<SecurityFilterChain> chains = new ArrayList<>();
+                    for (SecurityFilterChain chain : originalChains) {
+                        chains.add(createTokenChain(chain));
+                    }
+                    chains.addAll(originalChains);
+                    setFilterChains(filterChainProxy, chains);
+
+                    installation = new Installation(originalChains);
+                    INSTALLATIONS.put(filterChainProxy, installation);
+                }
+                installation.count++;
+                retVal.add(filterChainProxy);
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * Restore the original chains of the FilterChainProxy beans once no other test class uses the chains
+     * added by {@link #install(ApplicationContext)}.
+     * @param filterChainProxies The FilterChainProxy beans returned by {@link #install(ApplicationContext)}.
+     */
+    static void uninstall(List<FilterChainProxy> filterChainProxies) {
+        synchronized (INSTALLATIONS) {
+            for (FilterChainProxy filterChainProxy : filterChainProxies) {
+                Installation installation = INSTALLATIONS.get(filterChainProxy);
+                if (installation != null && --installation.count == 0) {
+                    setFilterChains(filterChainProxy, installation.originalChains);
+                    INSTALLATIONS.remove(filterChainProxy);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create the chain processing the requests of a chain that carry a registered token.
+     * @param chain The original chain.
+     * @return The chain for requests carrying a registered token.
+     */
+    private static SecurityFilterChain createTokenChain(SecurityFilterChain chain) {
+        List<Filter> filters = new ArrayList<>();
+        int index = 0;
+        for (Filter filter : chain.getFilters()) {
+            if (filter instanceof SecurityContextPersistenceFilter) {
+                filters.add(new SecurityContextPersistenceFilter(new NullSecurityContextRepository()));
+                index = filters.size();
+            } else if (!isCredentialFilter(filter)) {
+                filters.add(filter);
+            }
+        }
+        filters.add(index, new TestAuthenticationFilter());
+        return new DefaultSecurityFilterChain(request -> isAuthenticated(request) && chain.matches(request), filters);
+    }
+
+    /**
+     * Determine whether a request carries a registered token.  The requests created by
+     * {@link FilterChainProxy#getFilters(String)} do not support headers, so they are processed by the original chains.
+     * @param request The request.
+     * @return true if the request carries a registered token.
+     */
+    private static boolean isAuthenticated(HttpServletRequest request) {
+        try {
+            return getAuthentication(request) != null;
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The chains of a FilterChainProxy are not exposed for modification, so they are read through reflection.
+     * @param filterChainProxy The FilterChainProxy.
+     * @return The chains, or null if they cannot be read.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<SecurityFilterChain> getFilterChains(FilterChainProxy filterChainProxy) {
+        return FILTER_CHAINS_FIELD != null ? (List<SecurityFilterChain>) ReflectionUtils.getField(FILTER_CHAINS_FIELD, filterChainProxy) : null;
+    }
+
+    private static void setFilterChains(FilterChainProxy filterChainProxy, List<SecurityFilterChain> chains) {
+        ReflectionUtils.setField(FILTER_CHAINS_FIELD, filterChainProxy, chains);
+    }
+
+    private static boolean isCredentialFilter(Filter filter) {
+        for (Class<?> type : CREDENTIAL_FILTERS) {
+            if (type.isInstance(filter)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Authentication authentication = getAuthentication(request);
+        if (authentication != null) {
+            SecurityContext context = SecurityContextHolder.createEmptyContext();
+            context.setAuthentication(authentication);
+            SecurityContextHolder.setContext(context);
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Look up the Authentication of the mock/test user whose token the request carries.
+     * @param request The request.
+     * @return The Authentication, or null if the request does not carry a registered token.
+     */
+    private static Authentication getAuthentication(HttpServletRequest request) {
+        String token = request.getHeader(HEADER_NAME);
+        return token != null ? AUTHENTICATIONS.get(token) : null;
+    }
+
+    /**
+     * The chains added to a FilterChainProxy and the number of test classes using them.
+     */
+    private static class Installation {
+        private final List<SecurityFilterChain> originalChains;
+        private int count;
+
+        private Installation(List<SecurityFilterChain> originalChains) {
+            this.originalChains = originalChains;
+        }
+    }
+}
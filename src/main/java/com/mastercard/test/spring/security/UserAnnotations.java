@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.Test;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.TestClass;
+import org.springframework.security.test.context.support.WithSecurityContext;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Locates the annotations representing mock/test users on test classes and test methods, for use by
+ * {@link SpringSecurityJUnit4ClassRunner} and {@link SecurityJUnit4ClassRunner}.  Annotations marked with
+ * {@link WithSecurityContext} or {@link WithUserVariants} represent mock/test users; they may be repeated or
+ * used as meta-annotations.
+ */
+final class UserAnnotations {
+
+    private UserAnnotations() {
+    }
+
+    /**
+     * Validate the annotations representing mock/test users of the test class and its test methods, so that
+     * invalid annotations are reported as initialization errors of the test class rather than failing the
+     * discovery of the child tests.  The bounds and strength of each {@link WithMockUserMatrix} are validated.
+     * @param testClass The test class.
+     * @param errors The list of errors to append to.
+     */
+    static void validate(TestClass testClass, List<Throwable> errors) {
+        validate(testClass.getName(), find(testClass.getAnnotations()), errors);
+        for (FrameworkMethod method : testClass.getAnnotatedMethods(Test.class)) {
+            validate(testClass.getName() + "." + method.getName(), find(method.getAnnotations()), errors);
+        }
+    }
+
+    private static void validate(String location, List<Annotation> userAnnotations, List<Throwable> errors) {
+        for (Annotation userAnnotation : userAnnotations) {
+            if (userAnnotation instanceof WithMockUserMatrix) {
+                try {
+                    WithMockUserMatrixVariantsFactory.createRoleSets((WithMockUserMatrix) userAnnotation);
+                } catch (IllegalArgumentException e) {
+                    errors.add(new Exception("@WithMockUserMatrix of " + location + " is invalid: " + e.getMessage(), e));
+                }
+            }
+        }
+    }
+
+    /**
+     * Locate any annotations representing mock/test users located within the provided annotations.
+     * The search for annotations is executed recursively.
+     * @param annotations The annotations to investigate.
+     * @return A list of annotations that represent mock/test users.
+     */
+    static List<Annotation> find(Annotation[] annotations) {
+        List<Annotation> retVal = new ArrayList<>();
+
+        for (Annotation annotation : annotations) {
+            retVal.addAll(find(annotation));
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Locate all annotations representing mock/test users located within the provided annotation.
+     * The search for annotations is executed recursively.
+     * @param annotation The annotation to investigate.
+     * @return A list of annotations that represent mock/test users.
+     */
+    static List<Annotation> find(Annotation annotation) {
+        return findUserAnnotationsRecursively(annotation, new ArrayList<>());
+    }
+
+    /**
+     * Locate all annotations representing mock/test users located within the provided annotation by searching
+     * recursively.  In order to prevent issues with self-referencing annotations (i.e. @Documented), a list
+     * of previously checked annotations must be provided so that they can be ignored.
+     * @param annotation The annotation to investigate.
+     * @param ignoreList A list of Annotations that should be ignored when searching recursively.
+     * @return A list of annotations that represent mock/test users.
+     */
+    private static List<Annotation> findUserAnnotationsRecursively(Annotation annotation, List<Annotation> ignoreList) {
+        List<Annotation> retVal = new ArrayList<>();
+
+        if (annotation.annotationType().getAnnotation(WithSecurityContext.class) != null
+                || annotation.annotationType().getAnnotation(WithUserVariants.class) != null) {
+            retVal.add(annotation);
+        } else {
+            List<Annotation> repeatedAnnoations = findRepeatableAnnotations(annotation);
+            if (repeatedAnnoations.size() > 0) {
+                for (Annotation child : repeatedAnnoations) {
+                    retVal.addAll(findUserAnnotationsRecursively(child, ignoreList));
+                }
+            } else {
+                for (Annotation child : annotation.annotationType().getDeclaredAnnotations()) {
+                    if (!ignoreList.contains(child)) {
+                        ignoreList.add(child);
+                        retVal.addAll(findUserAnnotationsRecursively(child, ignoreList));
+                    }
+                }
+            }
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Locate repeated annoations within a Java 8 annotation container.  If the annotation
+     * provided is a container for annotations with the @Repeatable annotation, then the contained
+     * annotations are returned.
+     * @param annotation The annotation to investigate for repeated annotations.
+     * @return A list containing repeated annotations if present.
+     */
+    private static List<Annotation> findRepeatableAnnotations(Annotation annotation) {
+        List<Annotation> retVal = new ArrayList<>();
+
+        for (Method method : annotation.annotationType().getMethods()) {
+            if ("value".equals(method.getName())) {
+                if (method.getReturnType().isArray()) {
+                    try {
+                        Annotation[] types = (Annotation[]) method.invoke(annotation);
+                        retVal.addAll(Arrays.asList(types));
+                    } catch (IllegalAccessException | InvocationTargetException | ClassCastException e) {
+                        //ignore, must not be a container for annotations
+                    }
+                }
+                break;
+            }
+        }
+
+        return retVal;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.util.StreamUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An index of the users listed in a CSV resource, as described by {@link WithMockUsersFrom}.  Each resource is
+ * indexed once per JVM.  Only the offset of each line is retained; a line is parsed into a user each time it is
+ * requested.  Resources located on the file system are memory-mapped rather than read onto the heap.
+ */
+public final class UserCatalog {
+
+    private static final Map<String, UserCatalog> CATALOGS = new ConcurrentHashMap<>();
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final String location;
+    private final ByteBuffer content;
+    private final int[] offsets;
+    private final int size;
+
+    /**
+     * Construct a new instance indexing the provided content.
+     * @param location The location of the resource, used in error messages.
+     * @param content The content of the resource.
+     */
+    private UserCatalog(String location, ByteBuffer content) {
+        this.location = location;
+        this.content = content;
+
+        int[] lineOffsets = new int[INITIAL_CAPACITY];
+        int count = 0;
+        int start = 0;
+        int limit = content.limit();
+        for (int i = 0; i <= limit; i++) {
+            if (i == limit || content.get(i) == '\n') {
+                if (isUserLine(start, i)) {
+                    if (count == lineOffsets.length) {
+                        lineOffsets = Arrays.copyOf(lineOffsets, count * 2);
+                    }
+                    lineOffsets[count++] = start;
+                }
+                start = i + 1;
+            }
+        }
+
+        this.offsets = Arrays.copyOf(lineOffsets, count);
+        this.size = count;
+    }
+
+    /**
+     * Retrieve the catalog for the provided resource location, indexing the resource if it has not been
+     * indexed before.
+     * @param location The location of the resource, i.e. "classpath:users.csv".
+     * @return The catalog.
+     * @throws IllegalArgumentException if the resource cannot be read.
+     */
+    public static UserCatalog forLocation(String location) {
+        return CATALOGS.computeIfAbsent(location, UserCatalog::load);
+    }
+
+    /**
+     * Retrieve the number of users in the catalog.
+     * @return The number of users.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Read the user at the provided index.
+     * @param row The index of the user.
+     * @return The user.
+     * @throws IndexOutOfBoundsException if the index is outside the catalog.
+     * @throws IllegalArgumentException if the line does not describe a valid user.
+     */
+    public UserDetails getUser(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " is outside the " + size + " users in " + location);
+        }
+
+        String line = readLine(offsets[row]);
+        String[] fields = line.split(",", -1);
+        if (fields.length < 2 || fields[0].trim().isEmpty()) {
+            throw new IllegalArgumentException("Invalid user on row " + row + " of " + location + ": " + line);
+        }
+
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        if (fields.length > 2) {
+            for (String authority : fields[2].split(";")) {
+                if (!authority.trim().isEmpty()) {
+                    authorities.add(new SimpleGrantedAuthority(authority.trim()));
+                }
+            }
+        }
+
+        return new User(fields[0].trim(), fields[1].trim(), true, true, true, true, authorities);
+    }
+
+    /**
+     * Decode the line starting at the provided offset.
+     * @param offset The offset of the line.
+     * @return The line without its line terminator.
+     */
+    private String readLine(int offset) {
+        int end = offset;
+        while (end < content.limit() && content.get(end) != '\n') {
+            end++;
+        }
+        if (end > offset && content.get(end - 1) == '\r') {
+            end--;
+        }
+
+        //absolute reads, as ByteBuffer.position(int) only exists as a covariant override from Java 9
+        byte[] bytes = new byte[end - offset];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = content.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Determine whether the line between the offsets describes a user rather than being blank or a comment.
+     * @param start The offset of the first character of the line.
+     * @param end The offset of the line terminator.
+     * @return True if the line describes a user, otherwise false.
+     */
+    private boolean isUserLine(int start, int end) {
+        for (int i = start; i < end; i++) {
+            byte value = content.get(i);
+            if (value == '#') {
+                return false;
+            }
+            if (!Character.isWhitespace(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Load and index the resource at the provided location.
+     * @param location The location of the resource.
+     * @return The catalog.
+     * @throws IllegalArgumentException if the resource cannot be read.
+     */
+    private static UserCatalog load(String location) {
+        Resource resource = new DefaultResourceLoader().getResource(location);
+        if (!resource.exists()) {
+            throw new IllegalArgumentException("Unable to locate users at " + location);
+        }
+
+        try {
+            return new UserCatalog(location, read(resource));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to read users from " + location, e);
+        }
+    }
+
+    /**
+     * Read the content of the resource, memory-mapping it when it is located on the file system.
+     * @param resource The resource.
+     * @return The content.
+     * @throws IOException if the resource cannot be read.
+     */
+    private static ByteBuffer read(Resource resource) throws IOException {
+        File file = null;
+        try {
+            file = resource.getFile();
+        } catch (IOException e) {
+            //not on the file system (i.e. within a jar), read it onto the heap instead
+        }
+
+        if (file != null) {
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+                 FileChannel channel = randomAccessFile.getChannel()) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+
+        try (InputStream inputStream = resource.getInputStream()) {
+            return ByteBuffer.wrap(StreamUtils.copyToByteArray(inputStream));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import java.util.List;
+
+/**
+ * Enumerates the usernames available from a user store one page at a time, as used by
+ * {@link WithAllUserDetails}.  Pages are requested using keyset pagination: each page contains the
+ * usernames, in ascending order, that follow the last username of the previous page.
+ *
+ * @see WithAllUserDetails
+ * @see JdbcUserDetailsEnumerator
+ */
+public interface UserDetailsEnumerator {
+
+    /**
+     * Retrieve the next page of usernames.
+     * @param afterUsername The last username of the previous page, or null for the first page.
+     * @param pageSize The maximum number of usernames to return.
+     * @return The usernames, in ascending order.  A page with fewer than pageSize usernames is the last page.
+     */
+    List<String> findUsernames(String afterUsername, int pageSize);
+}
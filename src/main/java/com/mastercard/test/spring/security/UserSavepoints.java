@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.runners.model.Statement;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.transaction.TestContextTransactionUtils;
+import org.springframework.test.context.transaction.TestTransaction;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+/**
+ * Runs the test method of a mock/test user in a nested transaction that is rolled back afterwards, so that
+ * the mock/test users of a test method annotated with {@link SharedUserFixture#savepoints()} share the data
+ * set up in the test-managed transaction without seeing each other's changes.  With a
+ * DataSourceTransactionManager the nested transaction is a JDBC savepoint.
+ * <p>
+ * Test methods without an active test-managed transaction are run unchanged.  This class must only be used
+ * when Spring's transaction support is on the classpath.
+ * </p>
+ */
+final class UserSavepoints {
+
+    private static final TransactionDefinition NESTED =
+            new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_NESTED);
+
+    private UserSavepoints() {
+    }
+
+    /**
+     * Wrap the statement so that it is run in a savepoint of the test-managed transaction.
+     * @param testContext The TestContext of the test method.
+     * @param statement The statement running the test method for a mock/test user.
+     * @return The statement rolling back to the savepoint after running the test method.
+     */
+    static Statement withSavepoint(TestContext testContext, Statement statement) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                if (!TestTransaction.isActive()) {
+                    statement.evaluate();
+                    return;
+                }
+
+                PlatformTransactionManager transactionManager = getTransactionManager(testContext);
+                TransactionStatus savepoint = transactionManager.getTransaction(NESTED);
+                try {
+                    statement.evaluate();
+                } finally {
+                    transactionManager.rollback(savepoint);
+                }
+            }
+        };
+    }
+
+    /**
+     * Get the transaction manager of the test-managed transaction, as TransactionalTestExecutionListener does.
+     * @param testContext The TestContext of the test method.
+     * @return The transaction manager.
+     */
+    private static PlatformTransactionManager getTransactionManager(TestContext testContext) {
+        Transactional transactional = AnnotatedElementUtils.findMergedAnnotation(testContext.getTestMethod(), Transactional.class);
+        if (transactional == null) {
+            transactional = AnnotatedElementUtils.findMergedAnnotation(testContext.getTestClass(), Transactional.class);
+        }
+        String qualifier = transactional == null ? null : transactional.value();
+
+        PlatformTransactionManager transactionManager = TestContextTransactionUtils.retrieveTransactionManager(testContext, qualifier);
+        if (transactionManager == null) {
+            throw new IllegalStateException("Failed to retrieve PlatformTransactionManager for test context " + testContext);
+        }
+        return transactionManager;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+
+import java.lang.annotation.Annotation;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * A pool of MockHttpSessions per mock/test user, so that session based web tests run for the same user
+ * repeatedly do not have to set up a session and its SecurityContext for each test.
+ * <p>
+ * {@link SpringSecurityJUnit4ClassRunner} tracks the mock/test user being run, and {@link #getSession()}
+ * returns a session for that user, which already contains the user's SecurityContext as stored by
+ * HttpSessionSecurityContextRepository.  After each test the session is returned to the pool.  Sessions
+ * that were not modified by the test keep their attributes; modified sessions are cleared, and invalidated
+ * sessions are discarded.  Each session is given a new SecurityContext for the user's Authentication whenever
+ * it is returned to the pool, so that changes to the SecurityContext do not leak into later tests.  Sessions are
+ * pooled for each test class and discarded once the test class has been run.
+ * </p>
+ * <pre>
+ * mockMvc.perform(get("/").session(UserSessionPool.getSession()));
+ * </pre>
+ */
+public final class UserSessionPool {
+
+    private static final Map<Class<?>, Map<Annotation, Deque<PooledHttpSession>>> SESSIONS = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Class<?>> CURRENT_TEST_CLASS = new ThreadLocal<>();
+    private static final ThreadLocal<Annotation> CURRENT_USER = new ThreadLocal<>();
+    private static final ThreadLocal<SecurityContext> CURRENT_CONTEXT = new ThreadLocal<>();
+    private static final ThreadLocal<PooledHttpSession> CURRENT_SESSION = new ThreadLocal<>();
+
+    private UserSessionPool() {
+    }
+
+    /**
+     * Retrieve the session of the mock/test user being run on the current thread, taking it from the pool
+     * on first use within the test.
+     * @return The session containing the SecurityContext of the mock/test user.
+     * @throws IllegalStateException if no mock/test user is being run on the current thread.
+     */
+    public static MockHttpSession getSession() {
+        PooledHttpSession retVal = CURRENT_SESSION.get();
+        if (retVal == null) {
+            Annotation user = CURRENT_USER.get();
+            if (user == null) {
+                throw new IllegalStateException("No mock/test user is being run by SpringSecurityJUnit4ClassRunner");
+            }
+
+            retVal = getSessions(CURRENT_TEST_CLASS.get(), user).pollFirst();
+            if (retVal == null) {
+                retVal = new PooledHttpSession(CURRENT_CONTEXT.get());
+            }
+            CURRENT_SESSION.set(retVal);
+        }
+        return retVal;
+    }
+
+    /**
+     * Start tracking the mock/test user being run on the current thread.
+     * @param testClass The test class being run.
+     * @param user The user annotation identifying the mock/test user.
+     * @param securityContext The SecurityContext of the mock/test user.
+     */
+    static void begin(Class<?> testClass, Annotation user, SecurityContext securityContext) {
+        CURRENT_TEST_CLASS.set(testClass);
+        CURRENT_USER.set(user);
+        CURRENT_CONTEXT.set(securityContext);
+    }
+
+    /**
+     * Stop tracking the mock/test user being run on the current thread and return its session to the pool.
+     */
+    static void end() {
+        PooledHttpSession session = CURRENT_SESSION.get();
+        Class<?> testClass = CURRENT_TEST_CLASS.get();
+        Annotation user = CURRENT_USER.get();
+        CURRENT_SESSION.remove();
+        CURRENT_TEST_CLASS.remove();
+        CURRENT_USER.remove();
+        CURRENT_CONTEXT.remove();
+
+        if (session != null && !session.isInvalid()) {
+            session.reset();
+            getSessions(testClass, user).offerFirst(session);
+        }
+    }
+
+    /**
+     * Discard the sessions pooled for a test class.
+     * @param testClass The test class that has been run.
+     */
+    static void clear(Class<?> testClass) {
+        SESSIONS.remove(testClass);
+    }
+
+    /**
+     * Count the sessions pooled for a test class.
+     * @param testClass The test class.
+     * @return The number of sessions.
+     */
+    static int size(Class<?> testClass) {
+        Map<Annotation, Deque<PooledHttpSession>> sessions = SESSIONS.get(testClass);
+        return sessions != null ? sessions.values().stream().mapToInt(Deque::size).sum() : 0;
+    }
+
+    private static Deque<PooledHttpSession> getSessions(Class<?> testClass, Annotation user) {
+        return SESSIONS.computeIfAbsent(testClass, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(user, key -> new ConcurrentLinkedDeque<>());
+    }
+
+    /**
+     * A MockHttpSession that tracks whether its attributes have been modified since it was last reset, and
+     * that holds its own SecurityContext for the Authentication of the mock/test user.
+     */
+    private static class PooledHttpSession extends MockHttpSession {
+        private static final String CONTEXT_KEY = HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY;
+
+        private final Authentication authentication;
+        private boolean modified;
+
+        private PooledHttpSession(SecurityContext securityContext) {
+            this.authentication = securityContext.getAuthentication();
+            super.setAttribute(CONTEXT_KEY, createSecurityContext());
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            modified = true;
+            super.setAttribute(name, value);
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            modified = true;
+            super.removeAttribute(name);
+        }
+
+        private void reset() {
+            if (modified) {
+                clearAttributes();
+                modified = false;
+            }
+            super.setAttribute(CONTEXT_KEY, createSecurityContext());
+        }
+
+        private SecurityContext createSecurityContext() {
+            SecurityContext retVal = SecurityContextHolder.createEmptyContext();
+            retVal.setAuthentication(authentication);
+            return retVal;
+        }
+    }
+}
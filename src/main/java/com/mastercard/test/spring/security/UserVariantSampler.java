@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.runners.model.FrameworkMethod;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Orders mock/test user variants randomly from a seed and tracks the wall-clock budget
+ * available for executing them, as configured by {@link SampleUserVariants}.
+ */
+public class UserVariantSampler {
+
+    private final long seed;
+    private final long budgetMillis;
+    private long deadline;
+    private int executed;
+    private boolean exhausted;
+
+    /**
+     * Construct a new instance with the provided seed and budget.
+     * @param seed The seed used to order the variants.
+     * @param budgetMillis The budget in milliseconds; 0 or less removes the budget.
+     */
+    public UserVariantSampler(long seed, long budgetMillis) {
+        this.seed = seed;
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * Construct a new instance from the provided annotation, applying any seed or budget
+     * provided through system properties.
+     * @param sampleUserVariants The annotation configuring the sampling.
+     * @return The UserVariantSampler.
+     */
+    public static UserVariantSampler from(SampleUserVariants sampleUserVariants) {
+        String seedProperty = System.getProperty(SampleUserVariants.SEED_PROPERTY);
+        long seed = seedProperty != null ? Long.parseLong(seedProperty) : new Random().nextLong();
+
+        String budgetProperty = System.getProperty(SampleUserVariants.BUDGET_PROPERTY);
+        long budgetMillis = budgetProperty != null
+                ? Long.parseLong(budgetProperty) * 1000
+                : sampleUserVariants.unit().toMillis(sampleUserVariants.budget());
+
+        return new UserVariantSampler(seed, budgetMillis);
+    }
+
+    /**
+     * Retrieve the seed.
+     * @return The seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Shuffle the child tests into the order defined by the seed.  The same seed always results
+     * in the same order.
+     * @param children The child tests to shuffle.
+     */
+    public void shuffle(List<FrameworkMethod> children) {
+        Collections.shuffle(children, new Random(seed));
+    }
+
+    /**
+     * Determine whether another variant may be started.  The budget starts when this method is
+     * first called.
+     * @return True if the variant may be executed, otherwise false.
+     */
+    public synchronized boolean tryStart() {
+        long now = System.currentTimeMillis();
+        if (deadline == 0) {
+            deadline = now + budgetMillis;
+            System.out.println("Sampling user variants with seed=" + seed + ", budget=" + budgetMillis + "ms (replay with -D"
+                    + SampleUserVariants.SEED_PROPERTY + "=" + seed + ")");
+        }
+
+        if (!exhausted && budgetMillis > 0 && now >= deadline) {
+            exhausted = true;
+            System.out.println("Sampling budget exhausted after " + executed + " user variants, seed=" + seed);
+        }
+
+        if (!exhausted) {
+            executed++;
+        }
+        return !exhausted;
+    }
+}
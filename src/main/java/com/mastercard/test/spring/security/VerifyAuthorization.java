@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * When used with {@link SpringSecurityJUnit4ClassRunner} this annotation can be added to a test method
+ * with mock/test users to verify the method security of a secured method instead of executing the body of
+ * the test.  For each user the {@code @Secured}/{@code @PreAuthorize} metadata of the secured method is
+ * evaluated by the AccessDecisionManager of the MethodSecurityInterceptor in the ApplicationContext.
+ *
+ * <p>The expectation table is given by the users of the test: access is expected to be granted to the
+ * declared users and denied to the users generated by {@link WithOtherRolesDenied}.  The arguments of the
+ * invocation are all null, so expressions must not depend on argument values.</p>
+ *
+ * @see AuthorizationVerifier
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface VerifyAuthorization {
+
+    /**
+     * The class declaring the secured method.
+     * @return The class.
+     */
+    Class<?> type();
+
+    /**
+     * The name of the secured method.
+     * @return The method name.
+     */
+    String method();
+
+    /**
+     * The parameter types of the secured method, required only when the method name is overloaded.
+     * By default the overload without parameters is selected.
+     * @return The parameter types.
+     */
+    Class<?>[] parameterTypes() default {};
+}
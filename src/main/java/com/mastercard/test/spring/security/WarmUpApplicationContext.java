@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * When used with {@link SpringSecurityJUnit4ClassRunner} this annotation can be added to a test class so
+ * that its ApplicationContext is loaded on a background thread while the test class run before it is running.
+ * Starting Spring then overlaps with running the previous test class, and the runner only waits for the
+ * ApplicationContext if it is not loaded when the test class is run.
+ *
+ * <p>Contexts are loaded one at a time, in the order the runners are created, and only one ahead of the test
+ * class being run; a context that has not started loading when its test class is run is loaded by the runner
+ * instead.  Test classes annotated with {@code @DirtiesContext} in the {@code BEFORE_CLASS} or
+ * {@code BEFORE_EACH_TEST_METHOD} class mode are not warmed up, as the context would be discarded.  Test classes
+ * whose configuration depends on state set up in {@code @BeforeClass} methods must not use this annotation.</p>
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface WarmUpApplicationContext {
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * When used with {@link SpringSecurityJUnit4ClassRunner} this annotation can be added to a test method
+ * or class to execute the test once for every user enumerated by a {@link UserDetailsEnumerator}.  Usernames
+ * are requested from the enumerator one page at a time, once per runner, while the test class is being
+ * discovered.  Every matching user becomes a child test, as JUnit 4 requires the child tests up front, and is
+ * executed as a {@link WithUserDetails} so the UserDetails is loaded from the UserDetailsService when
+ * the test executes.
+ *
+ * @see UserDetailsEnumerator
+ * @see WithUserDetails
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+@WithUserVariants(factory = WithAllUserDetailsVariantsFactory.class)
+public @interface WithAllUserDetails {
+
+    /**
+     * The enumerator providing the usernames.  A bean of this type is used if the ApplicationContext
+     * contains one, otherwise an instance is created with its dependencies autowired.  The default
+     * is {@link JdbcUserDetailsEnumerator}.
+     * @return The enumerator class.
+     */
+    Class<? extends UserDetailsEnumerator> source() default JdbcUserDetailsEnumerator.class;
+
+    /**
+     * A regular expression that usernames must match in order to be executed.  The default matches
+     * every username.
+     * @return The regular expression.
+     */
+    String filter() default ".*";
+
+    /**
+     * The number of usernames requested from the enumerator at a time.  The default is 100.
+     * @return The page size.
+     */
+    int pageSize() default 100;
+
+    /**
+     * The bean name for the UserDetailsService to use, as described by
+     * {@link WithUserDetails#userDetailsServiceBeanName()}.
+     * @return the bean name for the UserDetailsService to use.
+     */
+    String userDetailsServiceBeanName() default "";
+}
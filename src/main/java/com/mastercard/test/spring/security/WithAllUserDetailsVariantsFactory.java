@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.core.annotation.AnnotationUtils;
+
+import java.lang.annotation.Annotation;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link WithUserVariantsFactory} that works with {@link WithAllUserDetails}.  Usernames are streamed from
+ * the {@link UserDetailsEnumerator} one page at a time and each matching username is converted into a
+ * {@link WithUserDetails} so that the SecurityContext is created by {@link WithUserDetailsSecurityContextFactory}.
+ *
+ * @see WithAllUserDetails
+ */
+public class WithAllUserDetailsVariantsFactory implements WithUserVariantsFactory<WithAllUserDetails> {
+
+    private final BeanFactory beans;
+
+    @Autowired
+    public WithAllUserDetailsVariantsFactory(BeanFactory beans) {
+        this.beans = beans;
+    }
+
+    @Override
+    public Iterator<Annotation> createUserVariants(WithAllUserDetails withAllUserDetails) {
+        if (withAllUserDetails.pageSize() < 1) {
+            throw new IllegalArgumentException("pageSize must be greater than 0 on " + withAllUserDetails);
+        }
+
+        return new PagingIterator(withAllUserDetails, buildEnumerator(withAllUserDetails.source()));
+    }
+
+    /**
+     * Locate the enumerator bean of the provided type, or create one if the BeanFactory does not contain one.
+     * @param source The enumerator class.
+     * @return The enumerator.
+     */
+    private UserDetailsEnumerator buildEnumerator(Class<? extends UserDetailsEnumerator> source) {
+        try {
+            return beans.getBean(source);
+        } catch (NoSuchBeanDefinitionException e) {
+            if (!(beans instanceof AutowireCapableBeanFactory)) {
+                throw e;
+            }
+            return ((AutowireCapableBeanFactory) beans).createBean(source);
+        }
+    }
+
+    /**
+     * Iterator that requests the next page of usernames from the enumerator only once the current page
+     * has been consumed.
+     */
+    private static class PagingIterator implements Iterator<Annotation> {
+        private final WithAllUserDetails withAllUserDetails;
+        private final UserDetailsEnumerator enumerator;
+        private final Pattern filter;
+        private Iterator<String> page;
+        private String lastUsername;
+        private boolean lastPage;
+        private String next;
+
+        PagingIterator(WithAllUserDetails withAllUserDetails, UserDetailsEnumerator enumerator) {
+            this.withAllUserDetails = withAllUserDetails;
+            this.enumerator = enumerator;
+            this.filter = Pattern.compile(withAllUserDetails.filter());
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && (page != null && page.hasNext() || fetchPage())) {
+                String username = page.next();
+                lastUsername = username;
+                if (filter.matcher(username).matches()) {
+                    next = username;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Annotation next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Map<String, Object> attributes = new HashMap<>();
+            attributes.put("value", next);
+            attributes.put("userDetailsServiceBeanName", withAllUserDetails.userDetailsServiceBeanName());
+            next = null;
+            return AnnotationUtils.synthesizeAnnotation(attributes, WithUserDetails.class, null);
+        }
+
+        /**
+         * Request the next page of usernames.
+         * @return True if the page contains usernames, otherwise false.
+         */
+        private boolean fetchPage() {
+            if (lastPage) {
+                return false;
+            }
+
+            List<String> usernames = enumerator.findUsernames(lastUsername, withAllUserDetails.pageSize());
+            lastPage = usernames.size() < withAllUserDetails.pageSize();
+            page = usernames.iterator();
+            return page.hasNext();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.security.test.context.support.WithSecurityContext;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * When used with {@link SpringSecurityJUnit4ClassRunner} this annotation can be added repeatedly to a
+ * test method or class to emulate running with a user authenticated by a JSON Web Token, as used by
+ * resource servers.  The SecurityContext that is used will be populated with a
+ * {@link MockJwtAuthenticationToken} holding an RS256 signed token, whose claims are:
+ *
+ * <ul>
+ * <li>"sub" - {@link #value()}</li>
+ * <li>"iss" - {@link #issuer()}</li>
+ * <li>"aud" - {@link #audience()}, if specified</li>
+ * <li>"scope" - {@link #scopes()} separated by spaces, if specified</li>
+ * <li>"authorities" - the authorities specified by {@link #roles()} or {@link #authorities()}</li>
+ * <li>"iat" and "exp" - the time the token was signed and one day later</li>
+ * </ul>
+ *
+ * <p>Tokens are signed by {@link MockJwtTokens} with a key pair generated for the JVM and are cached by
+ * their claims, so each distinct identity is signed once per JVM.  The token can be sent to the application
+ * in the Authorization header using {@link MockJwtAuthenticationToken#getAuthorizationHeader()}.</p>
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+@Repeatable(WithMockJwtUserContainer.class)
+@WithSecurityContext(factory = WithMockJwtUserSecurityContextFactory.class)
+public @interface WithMockJwtUser {
+
+    /**
+     * The subject of the token.  The default is "user".
+     * @return The subject.
+     */
+    String value() default "user";
+
+    /**
+     * The roles to use.  The default is "USER".  Each value is prefixed with "ROLE_".  If
+     * {@link #authorities()} is specified this property cannot be changed from the default.
+     * @return The roles.
+     */
+    String[] roles() default { "USER" };
+
+    /**
+     * The authorities to use, which are not prefixed.
+     * @return The authorities.
+     */
+    String[] authorities() default {};
+
+    /**
+     * The scopes of the token.  A "SCOPE_" prefixed authority is granted for each scope.
+     * @return The scopes.
+     */
+    String[] scopes() default {};
+
+    /**
+     * The issuer of the token.  The default is {@link MockJwtTokens#DEFAULT_ISSUER}.
+     * @return The issuer.
+     */
+    String issuer() default MockJwtTokens.DEFAULT_ISSUER;
+
+    /**
+     * The audience of the token.
+     * @return The audience.
+     */
+    String audience() default "";
+}
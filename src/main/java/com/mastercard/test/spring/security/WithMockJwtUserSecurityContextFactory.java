@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.test.context.support.WithSecurityContextFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link WithSecurityContextFactory} that works with {@link WithMockJwtUser}.  The signed token is
+ * retrieved from {@link MockJwtTokens}, which signs each distinct set of claims once.
+ *
+ * @see WithMockJwtUser
+ */
+public class WithMockJwtUserSecurityContextFactory implements WithSecurityContextFactory<WithMockJwtUser> {
+
+    public SecurityContext createSecurityContext(WithMockJwtUser withMockJwtUser) {
+        List<String> authorities = new ArrayList<>();
+        if (withMockJwtUser.authorities().length > 0) {
+            if (!(withMockJwtUser.roles().length == 1 && "USER".equals(withMockJwtUser.roles()[0]))) {
+                throw new IllegalStateException("You cannot define roles attribute " + Arrays.asList(withMockJwtUser.roles())
+                        + " with authorities attribute " + Arrays.asList(withMockJwtUser.authorities()));
+            }
+            for (String authority : withMockJwtUser.authorities()) {
+                authorities.add(authority);
+            }
+        } else {
+            for (String role : withMockJwtUser.roles()) {
+                if (role.startsWith("ROLE_")) {
+                    throw new IllegalArgumentException("roles cannot start with ROLE_ Got " + role);
+                }
+                authorities.add("ROLE_" + role);
+            }
+        }
+
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("sub", withMockJwtUser.value());
+        claims.put("iss", withMockJwtUser.issuer());
+        if (!withMockJwtUser.audience().isEmpty()) {
+            claims.put("aud", withMockJwtUser.audience());
+        }
+        if (withMockJwtUser.scopes().length > 0) {
+            claims.put("scope", String.join(" ", withMockJwtUser.scopes()));
+        }
+        claims.put("authorities", authorities);
+
+        List<GrantedAuthority> grantedAuthorities = new ArrayList<>(AuthorityUtils.createAuthorityList(authorities.toArray(new String[0])));
+        for (String scope : withMockJwtUser.scopes()) {
+            grantedAuthorities.addAll(AuthorityUtils.createAuthorityList("SCOPE_" + scope));
+        }
+
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new MockJwtAuthenticationToken(MockJwtTokens.getToken(claims), claims, grantedAuthorities));
+        return context;
+    }
+}
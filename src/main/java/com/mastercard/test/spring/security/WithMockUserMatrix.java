@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * When used with {@link SpringSecurityJUnit4ClassRunner} this annotation can be added to a test method
+ * or class to execute the test once for every combination of the provided {@link #roles()}.  Each combination
+ * containing between {@link #minRoles()} and {@link #maxRoles()} roles is executed as a separate test
+ * using a {@link WithMockUser} with those roles, so the SecurityContext is created by
+ * {@link WithMockUserSecurityContextFactory}.
+ *
+ * <p>Combinations are generated one at a time, in order of increasing size, while the test class is being
+ * discovered, without building the power set of the roles.  Each combination still becomes a child test of
+ * the runner, as JUnit 4 requires the child tests up front.  For large role sets a {@link #strength()} can be specified to execute a covering array
+ * instead of every combination.</p>
+ *
+ * @see WithMockUser
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+@WithUserVariants(factory = WithMockUserMatrixVariantsFactory.class)
+public @interface WithMockUserMatrix {
+
+    /**
+     * The roles to combine.  Each value will automatically be prefixed with "ROLE_" as described by
+     * {@link WithMockUser#roles()}.
+     * @return The roles.
+     */
+    String[] roles();
+
+    /**
+     * The minimum number of roles assigned to a single user.  The default is 1.
+     * @return The minimum number of roles.
+     */
+    int minRoles() default 1;
+
+    /**
+     * The maximum number of roles assigned to a single user.  The default of -1 uses the number
+     * of {@link #roles()} provided.
+     * @return The maximum number of roles.
+     */
+    int maxRoles() default -1;
+
+    /**
+     * <p>
+     * The interaction strength to cover.  The default of 0 executes every combination of roles.
+     * </p>
+     * <p>
+     * When a strength t greater than 0 is specified, only the role sets of a covering array are executed:
+     * every group of t roles appears granted/not granted in every possible way across the executed users.
+     * A strength of 2 provides pairwise coverage.
+     * </p>
+     * @return The interaction strength.
+     */
+    int strength() default 0;
+
+    /**
+     * The seed used to generate the covering array when {@link #strength()} is specified.  The same
+     * seed always produces the same users so failures can be reproduced.  The default is 0.
+     * @return The seed.
+     */
+    long seed() default 0;
+
+    /**
+     * The username to be used for every combination.  The default is "user".
+     * @return The username.
+     */
+    String username() default "user";
+
+    /**
+     * The password to be used for every combination.  The default is "password".
+     * @return The password.
+     */
+    String password() default "password";
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.core.annotation.AnnotationUtils;
+
+import java.lang.annotation.Annotation;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A {@link WithUserVariantsFactory} that works with {@link WithMockUserMatrix}.  Each combination of roles,
+ * or each row of a {@link RoleCoveringArray} when a strength is specified,
+ * is converted into a {@link WithMockUser} so that the SecurityContext is created by
+ * {@link WithMockUserSecurityContextFactory}.
+ *
+ * @see WithMockUserMatrix
+ */
+public class WithMockUserMatrixVariantsFactory implements WithUserVariantsFactory<WithMockUserMatrix> {
+
+    @Override
+    public Iterator<Annotation> createUserVariants(WithMockUserMatrix matrix) {
+        Iterator<String[]> combinations = createRoleSets(matrix).iterator();
+
+        return new Iterator<Annotation>() {
+            @Override
+            public boolean hasNext() {
+                return combinations.hasNext();
+            }
+
+            @Override
+            public Annotation next() {
+                return buildWithMockUser(matrix, combinations.next());
+            }
+        };
+    }
+
+    /**
+     * Create the role sets described by the matrix, without generating them.
+     * @param matrix The annotation describing the matrix.
+     * @return The role combinations, or the rows of a RoleCoveringArray when a strength is specified.
+     * @throws IllegalArgumentException if the bounds or strength of the matrix are invalid.
+     */
+    static Iterable<String[]> createRoleSets(WithMockUserMatrix matrix) {
+        int maxRoles = matrix.maxRoles() < 0 ? matrix.roles().length : matrix.maxRoles();
+        if (matrix.strength() > 0) {
+            return new RoleCoveringArray(matrix.roles(), matrix.minRoles(), maxRoles, matrix.strength(), matrix.seed());
+        }
+        return new RoleCombinations(matrix.roles(), matrix.minRoles(), maxRoles);
+    }
+
+    /**
+     * Synthesize a {@link WithMockUser} for a single combination of roles.
+     * @param matrix The annotation describing the matrix.
+     * @param roles The roles for the user.
+     * @return The WithMockUser annotation.
+     */
+    static WithMockUser buildWithMockUser(WithMockUserMatrix matrix, String[] roles) {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("value", matrix.username());
+        attributes.put("password", matrix.password());
+        attributes.put("roles", roles);
+        return AnnotationUtils.synthesizeAnnotation(attributes, WithMockUser.class, null);
+    }
+}
@@ -16,6 +16,8 @@
 package com.mastercard.test.spring.security;
 
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -28,7 +30,11 @@ import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Duplication of <a href="https://github.com/spring-projects/spring-security">Spring Security</a> implementation of
@@ -41,7 +47,32 @@ import java.util.List;
  */
 public class WithMockUserSecurityContextFactory implements WithSecurityContextFactory<WithMockUser> {
 
+    private static final Map<RoleHierarchy, Map<List<GrantedAuthority>, List<GrantedAuthority>>> REACHABLE_AUTHORITIES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private RoleHierarchy roleHierarchy;
+
+    /**
+     * Set the RoleHierarchy used when the test is annotated with {@link ExpandRoleHierarchy}.
+     * @param roleHierarchy The RoleHierarchy.
+     */
+    @Autowired(required = false)
+    public void setRoleHierarchy(RoleHierarchy roleHierarchy) {
+        this.roleHierarchy = roleHierarchy;
+    }
+
     public SecurityContext createSecurityContext(WithMockUser withUser) {
+        return createSecurityContext(withUser, false);
+    }
+
+    /**
+     * Create the SecurityContext of the mock/test user, optionally granting every authority reachable through
+     * the RoleHierarchy, as requested by {@link ExpandRoleHierarchy}.
+     * @param withUser The annotation describing the user.
+     * @param expandRoleHierarchy True to expand the authorities through the RoleHierarchy.
+     * @return The SecurityContext.
+     */
+    public SecurityContext createSecurityContext(WithMockUser withUser, boolean expandRoleHierarchy) {
         String username = StringUtils.hasLength(withUser.username()) ? withUser
                 .username() : withUser.value();
         if (username == null) {
@@ -66,6 +97,10 @@ public class WithMockUserSecurityContextFactory implements WithSecurityContextFa
             throw new IllegalStateException("You cannot define roles attribute "+ Arrays.asList(withUser.roles())+" with authorities attribute "+ Arrays.asList(withUser.authorities()));
         }
 
+        if (expandRoleHierarchy) {
+            grantedAuthorities = findReachableAuthorities(withUser, grantedAuthorities);
+        }
+
         User principal = new User(username, withUser.password(), true, true, true, true,
                 grantedAuthorities);
         Authentication authentication = new UsernamePasswordAuthenticationToken(
@@ -74,4 +109,22 @@ public class WithMockUserSecurityContextFactory implements WithSecurityContextFa
         context.setAuthentication(authentication);
         return context;
     }
+
+    /**
+     * Retrieve the authorities reachable from the provided authorities through the RoleHierarchy.  The result
+     * is cached for each RoleHierarchy so that the hierarchy is walked once per distinct set of authorities.
+     * @param withUser The annotation describing the user.
+     * @param grantedAuthorities The authorities declared for the user.
+     * @return The reachable authorities.
+     */
+    List<GrantedAuthority> findReachableAuthorities(WithMockUser withUser, List<GrantedAuthority> grantedAuthorities) {
+        if (roleHierarchy == null) {
+            throw new IllegalStateException(withUser + " requires a RoleHierarchy bean to expand the role hierarchy");
+        }
+
+        Map<List<GrantedAuthority>, List<GrantedAuthority>> cache = REACHABLE_AUTHORITIES.computeIfAbsent(roleHierarchy,
+                hierarchy -> new ConcurrentHashMap<>());
+        return cache.computeIfAbsent(grantedAuthorities,
+                authorities -> Collections.unmodifiableList(new ArrayList<>(roleHierarchy.getReachableGrantedAuthorities(authorities))));
+    }
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.security.test.context.support.WithSecurityContext;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * When used with {@link SpringSecurityJUnit4ClassRunner} this annotation can be added to a test method
+ * or class to execute the test once for every user listed in a CSV resource.  Each line of the resource
+ * describes a single user:
+ *
+ * <pre>
+ * # username,password,authorities separated by ';'
+ * admin,secret,ROLE_USER;ROLE_ADMIN
+ * auditor,secret,ROLE_AUDITOR
+ * </pre>
+ *
+ * <p>Blank lines and lines starting with '#' are ignored.  Values are not quoted and may not contain ','.
+ * The resource is indexed once per JVM by {@link UserCatalog}.  Each user becomes a child test that only
+ * holds its line number, as JUnit 4 requires the child tests up front, and the user is read from the resource
+ * when its test executes.</p>
+ *
+ * <p>The SecurityContext that is used will be populated with an UsernamePasswordAuthenticationToken
+ * for a {@link org.springframework.security.core.userdetails.User} with the values from the line.</p>
+ *
+ * @see UserCatalog
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+@WithUserVariants(factory = WithMockUsersFromVariantsFactory.class)
+@WithSecurityContext(factory = WithMockUsersFromSecurityContextFactory.class)
+public @interface WithMockUsersFrom {
+
+    /**
+     * The location of the resource listing the users, i.e. "classpath:users.csv".
+     * @return The location of the resource.
+     */
+    String value();
+
+    /**
+     * The index of the user within the resource.  This is assigned by {@link SpringSecurityJUnit4ClassRunner}
+     * to each variant and should not be specified.
+     * @return The index of the user.
+     */
+    int row() default -1;
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.test.context.support.WithSecurityContextFactory;
+
+/**
+ * A {@link WithSecurityContextFactory} that works with {@link WithMockUsersFrom}.  The user is read from
+ * the {@link UserCatalog} for the resource using the row assigned by {@link SpringSecurityJUnit4ClassRunner}.
+ * An annotation that has not been assigned a row, such as the one declared on the test method, does not
+ * represent a single user and results in no SecurityContext so that the one established by the runner is kept.
+ *
+ * @see WithMockUsersFrom
+ */
+public class WithMockUsersFromSecurityContextFactory implements WithSecurityContextFactory<WithMockUsersFrom> {
+
+    public SecurityContext createSecurityContext(WithMockUsersFrom withUser) {
+        if (withUser.row() < 0) {
+            return null;
+        }
+
+        UserDetails principal = UserCatalog.forLocation(withUser.value()).getUser(withUser.row());
+        Authentication authentication = new UsernamePasswordAuthenticationToken(
+                principal, principal.getPassword(), principal.getAuthorities());
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(authentication);
+        return context;
+    }
+}
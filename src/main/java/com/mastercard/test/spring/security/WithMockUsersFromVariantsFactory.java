@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.core.annotation.AnnotationUtils;
+
+import java.lang.annotation.Annotation;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link WithUserVariantsFactory} that works with {@link WithMockUsersFrom}.  A {@link WithMockUsersFrom}
+ * identifying a single row of the {@link UserCatalog} is created for each user in the resource.
+ *
+ * @see WithMockUsersFrom
+ */
+public class WithMockUsersFromVariantsFactory implements WithUserVariantsFactory<WithMockUsersFrom> {
+
+    @Override
+    public Iterator<Annotation> createUserVariants(WithMockUsersFrom withMockUsersFrom) {
+        int size = UserCatalog.forLocation(withMockUsersFrom.value()).size();
+
+        return new Iterator<Annotation>() {
+            private int row = 0;
+
+            @Override
+            public boolean hasNext() {
+                return row < size;
+            }
+
+            @Override
+            public Annotation next() {
+                if (row >= size) {
+                    throw new NoSuchElementException();
+                }
+
+                Map<String, Object> attributes = new HashMap<>();
+                attributes.put("value", withMockUsersFrom.value());
+                attributes.put("row", row++);
+                return AnnotationUtils.synthesizeAnnotation(attributes, WithMockUsersFrom.class, null);
+            }
+        };
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * When used with {@link SpringSecurityJUnit4ClassRunner} this annotation can be added to a test method or
+ * class to additionally execute each test method that declares its permitted users with {@link WithMockUser}
+ * users holding the other {@link #roles()}.  Those executions are expected to throw an
+ * {@link org.springframework.security.access.AccessDeniedException}.  The roles of the permitted users are
+ * taken from the {@code roles} and {@code authorities} of their annotations, or from the SecurityContexts
+ * created for them when their WithSecurityContextFactory does not require the ApplicationContext, such as for
+ * {@link WithPersona}.  The ApplicationContext is not loaded while the test class is discovered, so roles
+ * granted through it, for example by a {@code RoleHierarchy} or a {@code UserDetailsService}, should not be
+ * listed in {@link #roles()}.
+ *
+ * <p>A denied user is generated for each role that is not granted to any permitted user, followed by a single
+ * user holding all of those roles.  Equivalent role sets are only executed once.  A method level annotation
+ * takes precedence over a class level annotation.</p>
+ *
+ * @see AccessDeniedFrameworkMethod
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface WithOtherRolesDenied {
+
+    /**
+     * All roles configured for the application.  Each value will automatically be prefixed with "ROLE_"
+     * as described by {@link WithMockUser#roles()}.
+     * @return The roles.
+     */
+    String[] roles();
+
+    /**
+     * The username used by the denied users.  The default is "user".
+     * @return The username.
+     */
+    String username() default "user";
+}
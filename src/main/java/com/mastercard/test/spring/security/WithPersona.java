@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.security.test.context.support.WithSecurityContext;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * When used with {@link SpringSecurityJUnit4ClassRunner} this annotation can be added repeatedly to a
+ * test method or class to emulate running with a named persona defined in a {@link PersonaRegistry}.
+ * Personas are defined once in a properties resource and shared across modules instead of duplicating
+ * custom user annotations:
+ *
+ * <pre>
+ * auditor.username=audit
+ * auditor.roles=USER,AUDITOR
+ * admin.authorities=ROLE_USER,ROLE_ADMIN
+ * </pre>
+ *
+ * <p>The SecurityContext that is used will be populated with the Authentication prebuilt for the persona
+ * by the registry.</p>
+ *
+ * @see PersonaRegistry
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+@Repeatable(WithPersonaContainer.class)
+@WithSecurityContext(factory = WithPersonaSecurityContextFactory.class)
+public @interface WithPersona {
+
+    /**
+     * The name of the persona.
+     * @return The name of the persona.
+     */
+    String value();
+
+    /**
+     * The location of the properties resource defining the personas.  The default is
+     * "classpath:personas.properties".
+     * @return The location of the resource.
+     */
+    String location() default PersonaRegistry.DEFAULT_LOCATION;
+}
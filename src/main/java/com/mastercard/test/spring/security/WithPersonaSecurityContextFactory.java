@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.test.context.support.WithSecurityContextFactory;
+
+/**
+ * A {@link WithSecurityContextFactory} that works with {@link WithPersona}.  The persona is parsed once by the
+ * {@link PersonaRegistry}, while each test gets a new SecurityContext and Authentication.
+ *
+ * @see WithPersona
+ */
+public class WithPersonaSecurityContextFactory implements WithSecurityContextFactory<WithPersona> {
+
+    public SecurityContext createSecurityContext(WithPersona withPersona) {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(PersonaRegistry.forLocation(withPersona.location()).getAuthentication(withPersona.value()));
+        return context;
+    }
+}
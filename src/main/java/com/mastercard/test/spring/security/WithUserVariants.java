@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Meta-annotation that marks an annotation as a source of multiple mock/test users.  When used with
+ * {@link SpringSecurityJUnit4ClassRunner} an annotation carrying {@code @WithUserVariants} is expanded by the
+ * provided {@link WithUserVariantsFactory} into individual user annotations (i.e. {@link WithMockUser}), each of
+ * which is executed as a separate test with a separate result.
+ *
+ * @see WithUserVariantsFactory
+ * @see WithMockUserMatrix
+ */
+@Target(ElementType.ANNOTATION_TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface WithUserVariants {
+
+    /**
+     * The factory used to expand the annotation into individual user annotations.
+     * @return The WithUserVariantsFactory class.
+     */
+    Class<? extends WithUserVariantsFactory<? extends Annotation>> factory();
+}
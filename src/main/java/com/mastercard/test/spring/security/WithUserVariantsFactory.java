@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import java.lang.annotation.Annotation;
+import java.util.Iterator;
+
+/**
+ * Expands an annotation marked with {@link WithUserVariants} into the individual mock/test user
+ * annotations that are executed by {@link SpringSecurityJUnit4ClassRunner}.  Each annotation returned
+ * must itself be annotated with
+ * {@link org.springframework.security.test.context.support.WithSecurityContext}.
+ *
+ * <p>The variants are returned as an Iterator so that implementations can compute each variant on demand
+ * rather than building intermediate collections, such as a power set of roles.  JUnit 4 requires the runner
+ * to know all of its child tests, so every variant returned still becomes a child test of the runner.</p>
+ *
+ * @param <A> The annotation type supported by the factory.
+ * @see WithUserVariants
+ */
+public interface WithUserVariantsFactory<A extends Annotation> {
+
+    /**
+     * Create the mock/test user annotations represented by the provided annotation.
+     * @param annotation The annotation to expand.
+     * @return An Iterator over the user annotations.
+     */
+    Iterator<Annotation> createUserVariants(A annotation);
+}
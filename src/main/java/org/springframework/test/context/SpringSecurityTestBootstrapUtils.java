@@ -49,4 +49,15 @@ public final class SpringSecurityTestBootstrapUtils {
     public static BootstrapContext createBootstrapContext(Class<?> clazz) {
         return BootstrapUtils.createBootstrapContext(clazz);
     }
-}
\ No newline at end of file
+
+    /**
+     * Retrieve the TestContext managed by the provided TestContextManager.
+     * The implementation wraps the corresponding protected accessor of the
+     * Spring Test Support framework's TestContextManager within the same package.
+     * @param testContextManager The TestContextManager.
+     * @return The TestContext.
+     */
+    public static TestContext getTestContext(TestContextManager testContextManager) {
+        return testContextManager.getTestContext();
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import com.mastercard.test.spring.security.SpringTestApplicationWithMethodSecurity.SecuredService;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunNotifier;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * Contains test cases that validate usage of AuthorizationCoverageRecorder and AuthorizationCoverageReport.
+ */
+public class AuthorizationCoverageTests {
+
+    private static final String DELETE = SecuredService.class.getName() + ".delete(String)";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void runnerRecordsAccessDecisionsPerUserVariant() throws Exception {
+        System.setProperty(AuthorizationCoverageRecorder.DIRECTORY_PROPERTY, folder.getRoot().getPath());
+        try {
+            new SpringSecurityJUnit4ClassRunner(MockCoverageTest.class).run(new RunNotifier());
+        } finally {
+            System.clearProperty(AuthorizationCoverageRecorder.DIRECTORY_PROPERTY);
+        }
+
+        AuthorizationCoverageReport report = new AuthorizationCoverageReport();
+        report.merge(folder.getRoot().toPath());
+
+        assertEquals("G", report.getDecisions("ROLE_ADMIN", DELETE));
+        assertEquals("D", report.getDecisions("ROLE_USER", DELETE));
+        assertEquals("", report.getDecisions("ROLE_AUDITOR", DELETE));
+    }
+
+    @Test
+    public void runnerDoesNotReloadContextDirtiedAfterClass() throws Exception {
+        RunNotifier notifier = new RunNotifier();
+        Result result = new Result();
+        notifier.addListener(result.createListener());
+
+        System.setProperty(AuthorizationCoverageRecorder.DIRECTORY_PROPERTY, folder.getRoot().getPath());
+        try {
+            new SpringSecurityJUnit4ClassRunner(MockDirtiedCoverageTest.class).run(notifier);
+        } finally {
+            System.clearProperty(AuthorizationCoverageRecorder.DIRECTORY_PROPERTY);
+        }
+
+        AuthorizationCoverageReport report = new AuthorizationCoverageReport();
+        report.merge(folder.getRoot().toPath());
+
+        assertEquals(0, result.getFailureCount());
+        assertEquals(1, folder.getRoot().list().length);
+        assertEquals("G", report.getDecisions("ROLE_ADMIN", DELETE));
+    }
+
+    @Test
+    public void reportMergesFilesWithTheirOwnDefinitions() throws Exception {
+        write("authorization-coverage-1.log", "=0\tROLE_ADMIN", "=1\tService.read()", "G\t0\t1");
+        write("authorization-coverage-2.log", "=0\tROLE_USER", "=1\tROLE_ADMIN", "=2\tService.read()", "=3\tService.write(String,int)",
+                "D\t0\t3", "G\t0\t2", "D\t1\t2", "D\t1\t3");
+
+        AuthorizationCoverageReport report = new AuthorizationCoverageReport();
+        report.merge(folder.getRoot().toPath());
+
+        StringWriter writer = new StringWriter();
+        report.write(writer);
+
+        assertEquals("resource,ROLE_ADMIN,ROLE_USER\n"
+                + "Service.read(),GD,G\n"
+                + "\"Service.write(String,int)\",D,D\n", writer.toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void reportRejectsOtherFiles() throws Exception {
+        Path file = folder.newFile("other.log").toPath();
+        Files.write(file, Arrays.asList("G\t0\t1"), StandardCharsets.UTF_8);
+
+        new AuthorizationCoverageReport().merge(file);
+    }
+
+    private void write(String name, String... lines) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(name);
+        Files.write(file, Arrays.asList(AuthorizationCoverageRecorder.HEADER), StandardCharsets.UTF_8);
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Test Class used in testing AuthorizationCoverageRecorder.
+     */
+    @RunWith(SpringSecurityJUnit4ClassRunner.class)
+    @ContextConfiguration(classes = {SpringTestApplicationWithMethodSecurity.class, AuthorizationCoverageRecorder.class})
+    @WithOtherRolesDenied(roles = {"USER", "ADMIN"})
+    public static class MockCoverageTest {
+
+        @Test
+        @WithMockUser(roles = {"ADMIN"})
+        @VerifyAuthorization(type = SecuredService.class, method = "delete")
+        public void testDelete() {
+        }
+    }
+
+    /**
+     * Test Class used in testing AuthorizationCoverageRecorder with a context that is closed after the class.
+     */
+    @RunWith(SpringSecurityJUnit4ClassRunner.class)
+    @ContextConfiguration(classes = {SpringTestApplicationWithMethodSecurity.class, AuthorizationCoverageRecorder.class,
+            CachingMethodSecurityExpressionHandlerPostProcessor.class})
+    @DirtiesContext
+    public static class MockDirtiedCoverageTest {
+
+        @Test
+        @WithMockUser(roles = {"ADMIN"})
+        @VerifyAuthorization(type = SecuredService.class, method = "delete")
+        public void testDelete() {
+        }
+    }
+}
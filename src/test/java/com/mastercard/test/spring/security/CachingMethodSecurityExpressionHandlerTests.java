@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import com.mastercard.test.spring.security.SpringTestApplicationWithMethodSecurity.SecuredService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunNotifier;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.expression.method.ExpressionBasedPreInvocationAdvice;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionOperations;
+import org.springframework.security.access.intercept.aopalliance.MethodSecurityInterceptor;
+import org.springframework.security.access.prepost.PreInvocationAuthorizationAdviceVoter;
+import org.springframework.security.access.vote.AffirmativeBased;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.util.SimpleMethodInvocation;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Contains test cases that validate usage of CachingMethodSecurityExpressionHandler.
+ */
+public class CachingMethodSecurityExpressionHandlerTests {
+
+    private final CachingMethodSecurityExpressionHandler handler =
+            new CachingMethodSecurityExpressionHandler(new DefaultMethodSecurityExpressionHandler());
+
+    @Test
+    public void expressionRootIsReusedForEqualAuthentication() throws Exception {
+        Method method = SecuredService.class.getMethod("delete", String.class);
+        SecuredService target = new SecuredService();
+
+        EvaluationContext context = handler.createEvaluationContext(authentication("ADMIN"), new SimpleMethodInvocation(target, method, "1"));
+        EvaluationContext reused = handler.createEvaluationContext(authentication("ADMIN"), new SimpleMethodInvocation(target, method, "2"));
+
+        assertNotSame(context, reused);
+        assertSame(context.getRootObject().getValue(), reused.getRootObject().getValue());
+        assertEquals(1, handler.getCreatedExpressionRootCount());
+        assertEquals(1, handler.getCachedExpressionRootCount());
+    }
+
+    @Test
+    public void expressionRootIsNotReusedForOtherAuthenticationOrTarget() throws Exception {
+        Method method = SecuredService.class.getMethod("delete", String.class);
+        SecuredService target = new SecuredService();
+
+        EvaluationContext context = handler.createEvaluationContext(authentication("ADMIN"), new SimpleMethodInvocation(target, method, "1"));
+
+        assertNotSame(context.getRootObject().getValue(), handler.createEvaluationContext(authentication("USER"),
+                new SimpleMethodInvocation(target, method, "1")).getRootObject().getValue());
+        assertNotSame(context.getRootObject().getValue(), handler.createEvaluationContext(authentication("ADMIN"),
+                new SimpleMethodInvocation(new SecuredService(), method, "1")).getRootObject().getValue());
+        assertEquals(0, handler.getCachedExpressionRootCount());
+    }
+
+    @Test
+    public void reusedExpressionRootHasNoReturnObject() throws Exception {
+        Method method = SecuredService.class.getMethod("delete", String.class);
+        SecuredService target = new SecuredService();
+
+        EvaluationContext context = handler.createEvaluationContext(authentication("ADMIN"), new SimpleMethodInvocation(target, method, "1"));
+        handler.setReturnObject("deleted", context);
+        EvaluationContext reused = handler.createEvaluationContext(authentication("ADMIN"), new SimpleMethodInvocation(target, method, "2"));
+
+        assertNull(((MethodSecurityExpressionOperations) reused.getRootObject().getValue()).getReturnObject());
+    }
+
+    @Test
+    public void expressionRootIsNotSharedAcrossThreads() throws Exception {
+        Method method = SecuredService.class.getMethod("delete", String.class);
+        SecuredService target = new SecuredService();
+
+        EvaluationContext context = handler.createEvaluationContext(authentication("ADMIN"), new SimpleMethodInvocation(target, method, "1"));
+        AtomicReference<EvaluationContext> other = new AtomicReference<>();
+        Thread thread = new Thread(() -> other.set(handler.createEvaluationContext(authentication("ADMIN"),
+                new SimpleMethodInvocation(target, method, "1"))));
+        thread.start();
+        thread.join();
+
+        assertNotSame(context.getRootObject().getValue(), other.get().getRootObject().getValue());
+        assertEquals(0, handler.getCachedExpressionRootCount());
+    }
+
+    @Test
+    public void postProcessorDecoratesHandlerOfMethodSecurityInterceptor() throws Exception {
+        MethodSecurityInterceptor interceptor = new SpringTestApplicationWithMethodSecurity().getMethodSecurityInterceptor();
+
+        new CachingMethodSecurityExpressionHandlerPostProcessor().postProcessAfterInitialization(interceptor, "interceptor");
+
+        PreInvocationAuthorizationAdviceVoter voter = (PreInvocationAuthorizationAdviceVoter)
+                ((AffirmativeBased) interceptor.getAccessDecisionManager()).getDecisionVoters().get(0);
+        Field preAdvice = ReflectionUtils.findField(PreInvocationAuthorizationAdviceVoter.class, "preAdvice");
+        ReflectionUtils.makeAccessible(preAdvice);
+        Field expressionHandler = ReflectionUtils.findField(ExpressionBasedPreInvocationAdvice.class, "expressionHandler");
+        ReflectionUtils.makeAccessible(expressionHandler);
+
+        assertTrue(ReflectionUtils.getField(expressionHandler, ReflectionUtils.getField(preAdvice, voter))
+                instanceof CachingMethodSecurityExpressionHandler);
+    }
+
+    @Test
+    public void postProcessorDecoratesExpressionHandlerForRunner() throws Exception {
+        SpringSecurityJUnit4ClassRunner runner = new SpringSecurityJUnit4ClassRunner(MockCachedExpressionsTest.class);
+        runner.run(new RunNotifier());
+
+        CachingMethodSecurityExpressionHandler cachingHandler = runner.getApplicationContext(MockCachedExpressionsTest.class)
+                .getBean(CachingMethodSecurityExpressionHandler.class);
+
+        //the expression root of the ADMIN user created for testAudit() is reused for testAuditAgain()
+        assertTrue(cachingHandler.getCachedExpressionRootCount() > 0);
+    }
+
+    private Authentication authentication(String role) {
+        return new UsernamePasswordAuthenticationToken("user", "password", AuthorityUtils.createAuthorityList("ROLE_" + role));
+    }
+
+    /**
+     * Test Class used in testing CachingMethodSecurityExpressionHandler.
+     */
+    @RunWith(SpringSecurityJUnit4ClassRunner.class)
+    @ContextConfiguration(classes = {SpringTestApplicationWithMethodSecurity.class, CachingMethodSecurityExpressionHandlerPostProcessor.class})
+    public static class MockCachedExpressionsTest {
+
+        @Test
+        @WithMockUser(roles = {"ADMIN"})
+        @WithMockUser(roles = {"AUDITOR"})
+        @VerifyAuthorization(type = SecuredService.class, method = "audit")
+        public void testAudit() {
+        }
+
+        @Test
+        @WithMockUser(roles = {"ADMIN"})
+        @VerifyAuthorization(type = SecuredService.class, method = "audit")
+        public void testAuditAgain() {
+        }
+    }
+}
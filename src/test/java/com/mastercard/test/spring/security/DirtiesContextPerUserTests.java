@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.AfterClass;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.RunWith;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.MethodSorters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+/**
+ * Contains test cases that validate usage of @DirtiesContext with multiple mock/test users.
+ */
+@RunWith(SpringSecurityJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {SpringTestApplication.class})
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class DirtiesContextPerUserTests {
+
+    private static final List<ApplicationContext> dirtiedOnce = new ArrayList<>();
+    private static final List<ApplicationContext> dirtiedPerUser = new ArrayList<>();
+    private static final List<ApplicationContext> notDirtied = new ArrayList<>();
+
+    @Rule
+    public LogPrincipalRule logPrincipalRule = new LogPrincipalRule();
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    @WithMockUser("user1")
+    @WithMockUser("user2")
+    @WithMockUser("user3")
+    @DirtiesContext
+    public void test1ContextIsDirtiedOnceForAllUsers() {
+        dirtiedOnce.add(context);
+    }
+
+    @Test
+    @WithMockUser("user1")
+    @WithMockUser("user2")
+    @DirtiesContext
+    @DirtiesContextPerUser
+    public void test2ContextIsDirtiedForEachUser() {
+        dirtiedPerUser.add(context);
+    }
+
+    @Test
+    @WithMockUser("user1")
+    public void test3ContextIsReloaded() {
+        notDirtied.add(context);
+    }
+
+    @Test
+    public void test4FilteredUserDirtiesContext() throws Exception {
+        SpringSecurityJUnit4ClassRunner runner = new SpringSecurityJUnit4ClassRunner(MockFilteredTest.class);
+        Description user2 = runner.getDescription().getChildren().get(0).getChildren().get(1);
+        runner.filter(new Filter() {
+            @Override
+            public boolean shouldRun(Description description) {
+                return description.equals(user2) || "testB".equals(description.getMethodName());
+            }
+
+            @Override
+            public String describe() {
+                return "user2 of testA and testB";
+            }
+        });
+        runner.filter(new Filter() {
+            @Override
+            public boolean shouldRun(Description description) {
+                return true;
+            }
+
+            @Override
+            public String describe() {
+                return "all";
+            }
+        });
+        runner.run(new RunNotifier());
+
+        assertEquals(2, MockFilteredTest.contexts.size());
+        assertNotSame(MockFilteredTest.contexts.get(0), MockFilteredTest.contexts.get(1));
+    }
+
+    @AfterClass
+    public static void verifyContexts() {
+        assertEquals(3, dirtiedOnce.size());
+        assertEquals(1, new HashSet<>(dirtiedOnce).size());
+
+        assertEquals(2, dirtiedPerUser.size());
+        assertNotSame(dirtiedOnce.get(0), dirtiedPerUser.get(0));
+        assertNotSame(dirtiedPerUser.get(0), dirtiedPerUser.get(1));
+        assertNotSame(dirtiedPerUser.get(1), notDirtied.get(0));
+    }
+
+    /**
+     * Test Class used in testing @DirtiesContext when only some mock/test users are run.
+     */
+    @ContextConfiguration(classes = {SpringTestApplication.class})
+    @FixMethodOrder(MethodSorters.NAME_ASCENDING)
+    public static class MockFilteredTest {
+        private static final List<ApplicationContext> contexts = new ArrayList<>();
+
+        @Autowired
+        private ApplicationContext context;
+
+        @Test
+        @WithMockUser("user1")
+        @WithMockUser("user2")
+        @DirtiesContext
+        public void testA() {
+            contexts.add(context);
+        }
+
+        @Test
+        @WithMockUser("user1")
+        public void testB() {
+            contexts.add(context);
+        }
+    }
+}
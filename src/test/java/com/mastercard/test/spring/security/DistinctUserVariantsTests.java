@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.model.FrameworkMethod;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Contains test cases that validate usage of @DistinctUserVariants.
+ */
+@RunWith(SpringSecurityJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {SpringTestApplication.class})
+@DistinctUserVariants
+@WithMockUser
+public class DistinctUserVariantsTests {
+
+    private static final Map<String, Integer> executions = new HashMap<>();
+
+    @Rule
+    public LogPrincipalRule logPrincipalRule = new LogPrincipalRule();
+
+    @AfterClass
+    public static void eachDistinctUserExecutedOnce() {
+        assertEquals(Integer.valueOf(1), executions.get("runningWithClassUserRepeatedOnMethodExecutesOneTime"));
+        assertEquals(Integer.valueOf(2), executions.get("runningWithUserRepeatedThroughCustomAnnotationExecutesTwoTimes"));
+        assertEquals(Integer.valueOf(3), executions.get("runningWithMatrixContainingClassUserExecutesThreeTimes"));
+    }
+
+    @Test
+    @WithMockUser
+    public void runningWithClassUserRepeatedOnMethodExecutesOneTime() {
+        record("runningWithClassUserRepeatedOnMethodExecutesOneTime");
+    }
+
+    @Test
+    @WithSystemAdmin
+    @WithSystemAdminAndUser
+    public void runningWithUserRepeatedThroughCustomAnnotationExecutesTwoTimes() {
+        record("runningWithUserRepeatedThroughCustomAnnotationExecutesTwoTimes");
+    }
+
+    @Test
+    @WithMockUserMatrix(roles = {"USER", "A"})
+    public void runningWithMatrixContainingClassUserExecutesThreeTimes() {
+        record("runningWithMatrixContainingClassUserExecutesThreeTimes");
+    }
+
+    @Test
+    public void getChildrenEliminatesDuplicateUsers() throws Exception {
+        SpringSecurityJUnit4ClassRunner runner = new SpringSecurityJUnit4ClassRunner(DistinctUserVariantsTests.class);
+        List<FrameworkMethod> children = runner.getChildren();
+
+        //the class level user is repeated on the method: 2 user annotations
+        assertEquals(1, countChildren(children, "runningWithClassUserRepeatedOnMethodExecutesOneTime"));
+        //the class level user, @WithSystemAdmin and @WithSystemAdminAndUser: 4 user annotations
+        assertEquals(2, countChildren(children, "runningWithUserRepeatedThroughCustomAnnotationExecutesTwoTimes"));
+    }
+
+    private static int countChildren(List<FrameworkMethod> children, String name) {
+        int count = 0;
+        for (FrameworkMethod child : children) {
+            if (name.equals(child.getName())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void record(String name) {
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        executions.merge(name, 1, Integer::sum);
+    }
+
+    //============= TEST ANNOTATIONS BELOW ========================
+    @Target({ ElementType.METHOD, ElementType.TYPE })
+    @Retention(RetentionPolicy.RUNTIME)
+    @WithMockUser(roles = {"A"})
+    public @interface WithSystemAdmin {
+    }
+
+    @Target({ ElementType.METHOD, ElementType.TYPE })
+    @Retention(RetentionPolicy.RUNTIME)
+    @WithSystemAdmin
+    @WithMockUser
+    public @interface WithSystemAdminAndUser {
+    }
+}
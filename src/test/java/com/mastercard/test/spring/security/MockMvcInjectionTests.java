@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.Assert.assertSame;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Contains test cases that validate usage of the MockMvc injected by the runner.
+ */
+@RunWith(SpringSecurityJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = {SpringTestWebApplication.class})
+public class MockMvcInjectionTests {
+
+    private static MockMvc firstMockMvc;
+
+    @Rule
+    public LogPrincipalRule logPrincipalRule = new LogPrincipalRule();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @WithMockUser("admin")
+    @WithMockUser("user")
+    public void requestsUseTheSecurityContextOfEachUser() throws Exception {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+
+        mockMvc.perform(get("/whoami"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(username));
+    }
+
+    @Test
+    @WithMockUser(roles = {"ADMIN"})
+    @WithMockUser(roles = {"USER"})
+    public void requestsAreAuthorizedByTheFilterChain() throws Exception {
+        int expectedStatus = hasRole("ROLE_ADMIN") ? 200 : 403;
+
+        mockMvc.perform(get("/admin/whoami"))
+                .andExpect(status().is(expectedStatus));
+    }
+
+    @Test
+    @WithMockUser
+    @WithMockUser("other")
+    public void mockMvcIsBuiltOncePerApplicationContext() {
+        if (firstMockMvc == null) {
+            firstMockMvc = mockMvc;
+        }
+        assertSame(firstMockMvc, mockMvc);
+    }
+
+    private boolean hasRole(String role) {
+        for (GrantedAuthority authority : SecurityContextHolder.getContext().getAuthentication().getAuthorities()) {
+            if (role.equals(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
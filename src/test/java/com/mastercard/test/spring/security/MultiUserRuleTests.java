@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.rules.SpringClassRule;
+import org.springframework.test.context.junit4.rules.SpringMethodRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Contains test cases that validate usage of MultiUserRule with the Parameterized runner and Spring's rules.
+ */
+@RunWith(Parameterized.class)
+@ContextConfiguration(classes = {SpringTestApplication.class})
+@WithMockUser("classUser")
+public class MultiUserRuleTests {
+
+    private static final List<String> runs = new ArrayList<>();
+
+    @ClassRule
+    public static final SpringClassRule SPRING_CLASS_RULE = new SpringClassRule();
+
+    @Rule
+    public final SpringMethodRule springMethodRule = new SpringMethodRule();
+
+    @Rule
+    public final MultiUserRule multiUserRule = new MultiUserRule();
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    private final String parameter;
+
+    private String setUpUsername;
+
+    public MultiUserRuleTests(String parameter) {
+        this.parameter = parameter;
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[][] {{"a"}, {"b"}});
+    }
+
+    @Before
+    public void setUp() {
+        setUpUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+    }
+
+    @Test
+    @WithMockUser("user1")
+    @WithMockUser("user2")
+    public void testRunsOncePerUserAndParameter() {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        assertEquals(setUpUsername, username);
+        runs.add(parameter + ":" + username);
+    }
+
+    @Test
+    @WithUserDetails("details")
+    public void testFactoriesAreAutowiredFromTheApplicationContext() {
+        assertNotNull(userDetailsService);
+        runs.add(parameter + ":" + SecurityContextHolder.getContext().getAuthentication().getName());
+    }
+
+    @AfterClass
+    public static void verifyRuns() {
+        //the class level user is run in addition to the users of each test method
+        assertEquals(10, runs.size());
+        assertTrue(runs.containsAll(Arrays.asList("a:classUser", "a:user1", "a:user2", "b:classUser", "b:user1", "b:user2",
+                "a:details", "b:details")));
+        assertEquals(4, runs.stream().filter(run -> run.endsWith(":classUser")).count());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+}
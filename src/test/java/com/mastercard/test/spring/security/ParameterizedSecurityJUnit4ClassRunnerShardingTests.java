@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runners.Parameterized;
+import org.junit.runners.model.InitializationError;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Contains test cases that validate sharding and filtering of the child tests of ParameterizedSecurityJUnit4ClassRunner.
+ */
+public class ParameterizedSecurityJUnit4ClassRunnerShardingTests {
+
+    @After
+    public void clearShardProperties() {
+        System.clearProperty(ParameterizedSecurityJUnit4ClassRunner.SHARD_COUNT_PROPERTY);
+        System.clearProperty(ParameterizedSecurityJUnit4ClassRunner.SHARD_INDEX_PROPERTY);
+    }
+
+    @Test
+    public void testChildTestsAreNotSharded() throws Exception {
+        assertEquals(8, new ParameterizedSecurityJUnit4ClassRunner(Rows.class).testCount());
+    }
+
+    @Test
+    public void testChildTestsAreSharded() throws Exception {
+        System.setProperty(ParameterizedSecurityJUnit4ClassRunner.SHARD_COUNT_PROPERTY, "3");
+        System.setProperty(ParameterizedSecurityJUnit4ClassRunner.SHARD_INDEX_PROPERTY, "1");
+
+        assertEquals(3, new ParameterizedSecurityJUnit4ClassRunner(Rows.class).testCount());
+    }
+
+    @Test
+    public void testChildTestsAreFiltered() throws Exception {
+        ParameterizedSecurityJUnit4ClassRunner runner = new ParameterizedSecurityJUnit4ClassRunner(Rows.class);
+        Description child = runner.getDescription().getChildren().get(5);
+        runner.filter(Filter.matchMethodDescription(child));
+
+        assertEquals(1, runner.testCount());
+        assertEquals(child, runner.getDescription().getChildren().get(0));
+        assertEquals("test[1]", child.getMethodName());
+    }
+
+    @Test(expected = InitializationError.class)
+    public void testShardIndexMustBeLessThanShardCount() throws Exception {
+        System.setProperty(ParameterizedSecurityJUnit4ClassRunner.SHARD_COUNT_PROPERTY, "3");
+        System.setProperty(ParameterizedSecurityJUnit4ClassRunner.SHARD_INDEX_PROPERTY, "3");
+
+        new ParameterizedSecurityJUnit4ClassRunner(Rows.class);
+    }
+
+    @Test(expected = InitializationError.class)
+    public void testShardIndexMustNotBeNegative() throws Exception {
+        System.setProperty(ParameterizedSecurityJUnit4ClassRunner.SHARD_COUNT_PROPERTY, "3");
+        System.setProperty(ParameterizedSecurityJUnit4ClassRunner.SHARD_INDEX_PROPERTY, "-1");
+
+        new ParameterizedSecurityJUnit4ClassRunner(Rows.class);
+    }
+
+    @Test(expected = InitializationError.class)
+    public void testShardCountMustBePositive() throws Exception {
+        System.setProperty(ParameterizedSecurityJUnit4ClassRunner.SHARD_COUNT_PROPERTY, "0");
+
+        new ParameterizedSecurityJUnit4ClassRunner(Rows.class);
+    }
+
+    @Test(expected = InitializationError.class)
+    public void testShardCountMustBeANumber() throws Exception {
+        System.setProperty(ParameterizedSecurityJUnit4ClassRunner.SHARD_COUNT_PROPERTY, "three");
+
+        new ParameterizedSecurityJUnit4ClassRunner(Rows.class);
+    }
+
+    /**
+     * Test Class used in testing sharding and filtering.
+     */
+    public static class Rows {
+
+        @Parameterized.Parameter
+        public String parameter;
+
+        @Parameterized.Parameters
+        public static Object[][] parameters() {
+            return new Object[][] {{"a"}, {"b"}};
+        }
+
+        @Test
+        @WithMockUser("user1")
+        @WithMockUser("user2")
+        @WithMockUser("user3")
+        @WithMockUser("user4")
+        public void test() {
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Contains test cases that validate usage of ParameterizedSecurityJUnit4ClassRunner.
+ */
+@RunWith(ParameterizedSecurityJUnit4ClassRunner.class)
+public class ParameterizedSecurityJUnit4ClassRunnerTests {
+
+    private static final List<String> runs = new ArrayList<>();
+
+    @Rule
+    public LogPrincipalRule logPrincipalRule = new LogPrincipalRule();
+
+    private final String parameter;
+
+    public ParameterizedSecurityJUnit4ClassRunnerTests(String parameter) {
+        this.parameter = parameter;
+    }
+
+    @Parameterized.Parameters
+    public static Iterable<String> parameters() {
+        return Arrays.asList("a", "b", "c");
+    }
+
+    @Test
+    @WithMockUser("user1")
+    @WithMockUser("user2")
+    public void testRunsForEachRowAndUser() {
+        runs.add(parameter + ":" + SecurityContextHolder.getContext().getAuthentication().getName());
+    }
+
+    @Test
+    public void testRunsForEachRowWithoutUser() {
+        runs.add(parameter + ":" + SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @AfterClass
+    public static void verifyRuns() {
+        assertEquals(9, runs.size());
+        assertTrue(runs.containsAll(Arrays.asList("a:user1", "a:user2", "b:user1", "b:user2", "c:user1", "c:user2",
+                "a:null", "b:null", "c:null")));
+    }
+}
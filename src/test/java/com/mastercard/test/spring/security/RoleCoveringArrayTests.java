@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Contains test cases for RoleCoveringArray.
+ */
+public class RoleCoveringArrayTests {
+
+    private static final String[] ROLES = {"A", "B", "C", "D", "E", "F", "G", "H", "I", "J", "K", "L", "M", "N"};
+
+    @Test
+    public void pairwiseCoveringArrayCoversEveryPairOfRoles() {
+        List<Set<String>> roleSets = collect(new RoleCoveringArray(ROLES, 0, ROLES.length, 2, 0L));
+
+        for (int i = 0; i < ROLES.length; i++) {
+            for (int j = i + 1; j < ROLES.length; j++) {
+                assertCovered(roleSets, ROLES[i], true, ROLES[j], true);
+                assertCovered(roleSets, ROLES[i], true, ROLES[j], false);
+                assertCovered(roleSets, ROLES[i], false, ROLES[j], true);
+                assertCovered(roleSets, ROLES[i], false, ROLES[j], false);
+            }
+        }
+
+        //far fewer users than the 16384 role sets in the power set
+        assertTrue(roleSets.size() < 20);
+    }
+
+    @Test
+    public void coveringArrayHonorsRoleBounds() {
+        List<Set<String>> roleSets = collect(new RoleCoveringArray(ROLES, 1, 3, 2, 0L));
+
+        for (Set<String> roleSet : roleSets) {
+            assertTrue(roleSet.size() >= 1 && roleSet.size() <= 3);
+        }
+        for (int i = 0; i < ROLES.length; i++) {
+            for (int j = i + 1; j < ROLES.length; j++) {
+                assertCovered(roleSets, ROLES[i], true, ROLES[j], true);
+            }
+        }
+    }
+
+    @Test
+    public void coveringArrayIsReproducibleForTheSameSeed() {
+        assertEquals(collect(new RoleCoveringArray(ROLES, 0, ROLES.length, 3, 42L)),
+                collect(new RoleCoveringArray(ROLES, 0, ROLES.length, 3, 42L)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void coveringArrayRejectsStrengthGreaterThanRoles() {
+        new RoleCoveringArray(new String[] {"A", "B"}, 0, 2, 3, 0L);
+    }
+
+    private List<Set<String>> collect(RoleCoveringArray coveringArray) {
+        List<Set<String>> retVal = new ArrayList<>();
+        for (String[] roles : coveringArray) {
+            retVal.add(new HashSet<>(Arrays.asList(roles)));
+        }
+        return retVal;
+    }
+
+    private void assertCovered(List<Set<String>> roleSets, String role1, boolean granted1, String role2, boolean granted2) {
+        boolean covered = false;
+        for (Set<String> roleSet : roleSets) {
+            if (roleSet.contains(role1) == granted1 && roleSet.contains(role2) == granted2) {
+                covered = true;
+                break;
+            }
+        }
+        assertTrue(role1 + "=" + granted1 + ", " + role2 + "=" + granted2 + " not covered", covered);
+    }
+}
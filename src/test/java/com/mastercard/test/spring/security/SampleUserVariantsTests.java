@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.FrameworkMethod;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Contains test cases that validate usage of @SampleUserVariants.
+ */
+public class SampleUserVariantsTests {
+
+    @Test
+    public void samplerOrdersChildrenTheSameWayForTheSameSeed() throws Exception {
+        SpringSecurityJUnit4ClassRunner runner = new SpringSecurityJUnit4ClassRunner(MockSampledTest.class);
+        List<FrameworkMethod> children = runner.getChildren();
+
+        List<FrameworkMethod> first = new ArrayList<>(children);
+        new UserVariantSampler(11L, 0).shuffle(first);
+        List<FrameworkMethod> second = new ArrayList<>(children);
+        new UserVariantSampler(11L, 0).shuffle(second);
+
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void samplerWithoutBudgetAlwaysStarts() {
+        UserVariantSampler sampler = new UserVariantSampler(1L, 0);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(sampler.tryStart());
+        }
+    }
+
+    @Test
+    public void samplerStopsStartingVariantsOnceBudgetIsExhausted() throws Exception {
+        UserVariantSampler sampler = new UserVariantSampler(1L, 10);
+        assertTrue(sampler.tryStart());
+
+        Thread.sleep(20);
+
+        assertFalse(sampler.tryStart());
+        assertFalse(sampler.tryStart());
+    }
+
+    @Test
+    public void runnerReportsVariantsOutsideTheBudgetAsIgnored() throws Exception {
+        System.setProperty(SampleUserVariants.BUDGET_PROPERTY, "0");
+        SpringSecurityJUnit4ClassRunner runner;
+        try {
+            runner = new SpringSecurityJUnit4ClassRunner(MockSampledTest.class);
+        } finally {
+            System.clearProperty(SampleUserVariants.BUDGET_PROPERTY);
+        }
+
+        AtomicInteger finished = new AtomicInteger();
+        AtomicInteger ignored = new AtomicInteger();
+        RunNotifier notifier = new RunNotifier();
+        notifier.addListener(new RunListener() {
+            @Override
+            public void testFinished(Description description) {
+                finished.incrementAndGet();
+            }
+
+            @Override
+            public void testIgnored(Description description) {
+                ignored.incrementAndGet();
+            }
+        });
+        runner.run(notifier);
+
+        //without a budget all 7 variants and the plain test are executed
+        assertEquals(8, finished.get());
+        assertEquals(0, ignored.get());
+
+        runner = new SpringSecurityJUnit4ClassRunner(MockSampledTest.class);
+        finished.set(0);
+        runner.run(notifier);
+
+        //the 1ms budget is exhausted by the first variant, but the plain test is always executed
+        assertTrue(ignored.get() > 0);
+        assertEquals(8, finished.get() + ignored.get());
+    }
+
+    /**
+     * Test Class used in testing @SampleUserVariants.
+     */
+    @RunWith(SpringSecurityJUnit4ClassRunner.class)
+    @ContextConfiguration(classes = {SpringTestApplication.class})
+    @SampleUserVariants(budget = 1, unit = TimeUnit.MILLISECONDS)
+    public static class MockSampledTest {
+
+        @Test
+        @WithMockUserMatrix(roles = {"A", "B", "C"})
+        public void testWithRoleMatrix() throws Exception {
+            assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+            Thread.sleep(5);
+        }
+
+        @Test
+        public void testWithoutUser() {
+            assertTrue(true);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import com.mastercard.test.spring.security.SpringTestApplicationWithMethodSecurity.SecuredService;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.SecurityConfig;
+import org.springframework.security.access.event.AuthorizationFailureEvent;
+import org.springframework.security.access.event.AuthorizedEvent;
+import org.springframework.security.access.intercept.aopalliance.MethodSecurityInterceptor;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Contains test cases that validate usage of SecurityEventRecorder.
+ */
+@RunWith(SpringSecurityJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {SpringTestApplicationWithMethodSecurity.class})
+public class SecurityEventRecorderTests {
+
+    @Rule
+    public LogPrincipalRule logPrincipalRule = new LogPrincipalRule();
+
+    @Autowired
+    private MethodSecurityInterceptor interceptor;
+
+    private SecuredService securedService;
+
+    @Before
+    public void setUp() {
+        ProxyFactory proxyFactory = new ProxyFactory(new SecuredService());
+        proxyFactory.addAdvice(interceptor);
+        securedService = (SecuredService) proxyFactory.getProxy();
+    }
+
+    @Test
+    @WithMockUser(roles = {"ADMIN"})
+    @WithMockUser(roles = {"USER"})
+    @WithMockUser(roles = {"USER", "GUEST"})
+    public void eachUserOnlySeesItsOwnAccessDenials() {
+        try {
+            securedService.audit();
+        } catch (AccessDeniedException e) {
+            //asserted through the recorded events
+        }
+        try {
+            securedService.delete("1");
+        } catch (AccessDeniedException e) {
+            //asserted through the recorded events
+        }
+
+        SecurityEventRecorder.assertAccessDenied(hasRole("ROLE_ADMIN") ? 0 : 2);
+    }
+
+    @Test
+    @WithMockUser(roles = {"ADMIN"})
+    public void recorderDiscardsOldestEventsOnceFull() {
+        SecurityEventRecorder recorder = new SecurityEventRecorder();
+        for (int i = 0; i < SecurityEventRecorder.CAPACITY + 3; i++) {
+            recorder.onApplicationEvent(new AuthorizedEvent(i, SecurityConfig.createList("ROLE_ADMIN"), SecurityContextHolder.getContext().getAuthentication()));
+        }
+
+        List<ApplicationEvent> events = SecurityEventRecorder.getEvents();
+        assertEquals(SecurityEventRecorder.CAPACITY, events.size());
+        assertEquals(3, SecurityEventRecorder.getDiscardedCount());
+        assertEquals(3, events.get(0).getSource());
+        assertEquals(SecurityEventRecorder.CAPACITY + 2, events.get(events.size() - 1).getSource());
+        assertEquals(0, SecurityEventRecorder.count(AuthorizationFailureEvent.class));
+    }
+
+    @Test(expected = AssertionError.class)
+    @WithMockUser(roles = {"USER"})
+    public void assertionFailsForUnexpectedAccessDenials() {
+        try {
+            securedService.delete("1");
+        } catch (AccessDeniedException e) {
+            assertSame(e, ((AuthorizationFailureEvent) SecurityEventRecorder.getEvents().get(0)).getAccessDeniedException());
+        }
+
+        SecurityEventRecorder.assertAccessDenied(0);
+    }
+
+    private boolean hasRole(String role) {
+        for (GrantedAuthority authority : SecurityContextHolder.getContext().getAuthentication().getAuthorities()) {
+            if (role.equals(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.InitializationError;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Contains test cases that validate usage of SecurityJUnit4ClassRunner.
+ */
+@RunWith(SecurityJUnit4ClassRunner.class)
+@WithMockUser("classUser")
+public class SecurityJUnit4ClassRunnerTests {
+
+    private static final List<String> usernames = new ArrayList<>();
+
+    @Rule
+    public LogPrincipalRule logPrincipalRule = new LogPrincipalRule();
+
+    private String setUpUsername;
+
+    @Before
+    public void setUp() {
+        setUpUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+    }
+
+    @Test
+    @WithMockUser(value = "admin", roles = {"ADMIN"})
+    @WithMockUser("user")
+    public void testEachUserIsRunWithItsSecurityContext() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertEquals(setUpUsername, authentication.getName());
+        if ("admin".equals(authentication.getName())) {
+            assertTrue(authentication.getAuthorities().toString().contains("ROLE_ADMIN"));
+        }
+        usernames.add(authentication.getName());
+    }
+
+    @Test
+    @WithMockUserMatrix(username = "matrix", roles = {"A", "B"})
+    public void testUserVariantsAreExpanded() {
+        usernames.add(SecurityContextHolder.getContext().getAuthentication().getName());
+    }
+
+    @Test
+    public void testDescriptionNestsUsersUnderTheirMethod() throws Exception {
+        Description description = new SecurityJUnit4ClassRunner(WithoutUsers.class).getDescription();
+        assertEquals(1, description.getChildren().size());
+        assertEquals(0, description.getChildren().get(0).getChildren().size());
+
+        description = new SecurityJUnit4ClassRunner(WithUserDetailsUser.class).getDescription();
+        assertEquals(1, description.getChildren().size());
+        assertEquals(2, description.getChildren().get(0).getChildren().size());
+    }
+
+    @Test
+    public void testUsersRequiringAnApplicationContextFail() throws Exception {
+        RunNotifier notifier = new RunNotifier();
+        Result result = new Result();
+        notifier.addListener(result.createListener());
+        new SecurityJUnit4ClassRunner(WithUserDetailsUser.class).run(notifier);
+
+        assertEquals(2, result.getRunCount());
+        assertEquals(1, result.getFailureCount());
+        assertTrue(result.getFailures().get(0).getMessage().contains("without an ApplicationContext"));
+    }
+
+    @Test
+    public void testDistinctUserVariantsAreRunOnce() throws Exception {
+        SecurityJUnit4ClassRunner runner = new SecurityJUnit4ClassRunner(DistinctUsers.class);
+
+        assertEquals(2, runner.testCount());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testChildrenAreUnmodifiable() throws Exception {
+        new SecurityJUnit4ClassRunner(DistinctUsers.class).getChildren().clear();
+    }
+
+    @Test(expected = InitializationError.class)
+    public void testSampleUserVariantsFailsTheClass() throws Exception {
+        new SecurityJUnit4ClassRunner(SampledUsers.class);
+    }
+
+    @Test(expected = InitializationError.class)
+    public void testWithOtherRolesDeniedFailsTheClass() throws Exception {
+        new SecurityJUnit4ClassRunner(DeniedUsers.class);
+    }
+
+    @AfterClass
+    public static void verifyUsers() {
+        assertTrue(usernames.containsAll(Arrays.asList("classUser", "admin", "user", "matrix")));
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    public static class WithoutUsers {
+
+        @Test
+        public void test() {
+        }
+    }
+
+    public static class WithUserDetailsUser {
+
+        @Test
+        @WithMockUser("user")
+        @WithUserDetails("user")
+        public void test() {
+        }
+    }
+
+    @DistinctUserVariants
+    @WithMockUser("user")
+    public static class DistinctUsers {
+
+        @Test
+        @WithMockUser("user")
+        @WithMockUserMatrix(roles = {"USER"})
+        @WithMockUser("admin")
+        public void test() {
+        }
+    }
+
+    @SampleUserVariants(budget = 1)
+    public static class SampledUsers {
+
+        @Test
+        @WithMockUser("user")
+        public void test() {
+        }
+    }
+
+    public static class DeniedUsers {
+
+        @Test
+        @WithMockUser("user")
+        @WithOtherRolesDenied(roles = {"ADMIN"})
+        public void test() {
+        }
+    }
+}
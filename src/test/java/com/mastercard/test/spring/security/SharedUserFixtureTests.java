@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Contains test cases that validate usage of @SharedUserFixture.
+ */
+@RunWith(SpringSecurityJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {SpringTestApplication.class})
+@SharedUserFixture
+public class SharedUserFixtureTests {
+
+    private static final Map<String, Integer> setUps = new HashMap<>();
+    private static final Map<String, Integer> tearDowns = new HashMap<>();
+    private static final Map<String, List<String>> usernames = new HashMap<>();
+
+    @Rule
+    public LogPrincipalRule logPrincipalRule = new LogPrincipalRule();
+
+    private List<String> fixture;
+
+    @Before
+    public void setUp() {
+        fixture = new ArrayList<>();
+        setUps.merge(getClass().getSimpleName(), 1, Integer::sum);
+    }
+
+    @After
+    public void tearDown() {
+        tearDowns.merge(getClass().getSimpleName(), 1, Integer::sum);
+    }
+
+    @Test
+    @WithMockUser("user1")
+    @WithMockUser("user2")
+    @WithMockUser("user3")
+    public void testFixtureIsSharedByAllUsers() {
+        record("testFixtureIsSharedByAllUsers");
+    }
+
+    @Test
+    @WithMockUser("user1")
+    @WithMockUser("user2")
+    public void testFixtureIsSharedByAllUsersOfAnotherMethod() {
+        record("testFixtureIsSharedByAllUsersOfAnotherMethod");
+    }
+
+    private void record(String methodName) {
+        assertNotNull(fixture);
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        fixture.add(username);
+        usernames.put(methodName, new ArrayList<>(fixture));
+    }
+
+    @AfterClass
+    public static void verifyFixtureWasSharedPerMethod() {
+        String key = SharedUserFixtureTests.class.getSimpleName();
+        assertEquals(2, (int) setUps.get(key));
+        assertEquals(2, (int) tearDowns.get(key));
+
+        List<String> users = usernames.get("testFixtureIsSharedByAllUsers");
+        assertEquals(3, users.size());
+        assertTrue(users.containsAll(Arrays.asList("user1", "user2", "user3")));
+        assertEquals(2, usernames.get("testFixtureIsSharedByAllUsersOfAnotherMethod").size());
+    }
+}
@@ -187,6 +187,17 @@ public class SpringSecurityJUnit4ClassRunnerTests {
         assertEquals(expectedDescription.getChildren().size(), actualDescription.getChildren().size());
     }
 
+    @Test
+    public void describeChildDistinguishesIdenticalUsers() throws Exception {
+        SpringSecurityJUnit4ClassRunner runner = new SpringSecurityJUnit4ClassRunner(MockIdenticalUsersTest.class);
+        List<FrameworkMethod> children = runner.getChildren();
+
+        assertEquals(2, children.size());
+        assertEquals(children.get(0), children.get(1));
+        assertFalse(runner.describeChild(children.get(0)).equals(runner.describeChild(children.get(1))));
+        assertEquals(runner.describeChild(children.get(1)), runner.describeChild(children.get(1)));
+    }
+
     private void assertDescriptionDetailsEqual(Description expectedDescription, Description actualDescription) {
         assertEquals(expectedDescription.getClassName(), actualDescription.getClassName());
         assertEquals(expectedDescription.getMethodName(), actualDescription.getMethodName());
@@ -236,4 +247,17 @@ public class SpringSecurityJUnit4ClassRunnerTests {
             assertEquals(expectedAnno.getClass(), actualAnno.getClass());
         }
     }
+
+    /**
+     * Test Class used in testing the Descriptions of identical mock/test users.
+     */
+    @ContextConfiguration(classes = {SpringTestApplication.class})
+    public static class MockIdenticalUsersTest {
+
+        @Test
+        @WithMockUser("bob")
+        @WithMockUser("bob")
+        public void test() {
+        }
+    }
 }
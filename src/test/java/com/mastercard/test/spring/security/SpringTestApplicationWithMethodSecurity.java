@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.access.AccessDecisionVoter;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.security.access.annotation.SecuredAnnotationSecurityMetadataSource;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.expression.method.ExpressionBasedAnnotationAttributeFactory;
+import org.springframework.security.access.expression.method.ExpressionBasedPreInvocationAdvice;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionHandler;
+import org.springframework.security.access.intercept.aopalliance.MethodSecurityInterceptor;
+import org.springframework.security.access.method.DelegatingMethodSecurityMetadataSource;
+import org.springframework.security.access.method.MethodSecurityMetadataSource;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.access.prepost.PrePostAnnotationSecurityMetadataSource;
+import org.springframework.security.access.prepost.PreInvocationAuthorizationAdviceVoter;
+import org.springframework.security.access.vote.AffirmativeBased;
+import org.springframework.security.access.vote.AuthenticatedVoter;
+import org.springframework.security.access.vote.RoleVoter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Spring Application configuration class used in the tests.
+ */
+@Configuration
+public class SpringTestApplicationWithMethodSecurity {
+
+    /**
+     * Provide a MethodSecurityInterceptor equivalent to the one configured by
+     * {@code @EnableGlobalMethodSecurity(securedEnabled = true, prePostEnabled = true)} to help test
+     * {@link VerifyAuthorization}.
+     * @return The instance of MethodSecurityInterceptor.
+     */
+    @Bean
+    public MethodSecurityInterceptor getMethodSecurityInterceptor() {
+        MethodSecurityExpressionHandler expressionHandler = getMethodSecurityExpressionHandler();
+
+        List<MethodSecurityMetadataSource> sources = Arrays.asList(
+                new PrePostAnnotationSecurityMetadataSource(new ExpressionBasedAnnotationAttributeFactory(expressionHandler)),
+                new SecuredAnnotationSecurityMetadataSource());
+
+        ExpressionBasedPreInvocationAdvice advice = new ExpressionBasedPreInvocationAdvice();
+        advice.setExpressionHandler(expressionHandler);
+        List<AccessDecisionVoter<?>> voters = Arrays.asList(
+                new PreInvocationAuthorizationAdviceVoter(advice), new RoleVoter(), new AuthenticatedVoter());
+
+        MethodSecurityInterceptor retVal = new MethodSecurityInterceptor();
+        retVal.setSecurityMetadataSource(new DelegatingMethodSecurityMetadataSource(sources));
+        retVal.setAccessDecisionManager(new AffirmativeBased(voters));
+        retVal.setAuthenticationManager(authentication -> authentication);
+        return retVal;
+    }
+
+    /**
+     * Provide the MethodSecurityExpressionHandler used by the MethodSecurityInterceptor.
+     * @return The instance of MethodSecurityExpressionHandler.
+     */
+    @Bean
+    public MethodSecurityExpressionHandler getMethodSecurityExpressionHandler() {
+        return new DefaultMethodSecurityExpressionHandler();
+    }
+
+    /**
+     * Provide an instance of the secured service to help test {@link VerifyAuthorization}.
+     * @return The instance of SecuredService.
+     */
+    @Bean
+    public SecuredService getSecuredService() {
+        return new SecuredService();
+    }
+
+    /**
+     * A service with secured methods.
+     */
+    public static class SecuredService {
+
+        @Secured("ROLE_ADMIN")
+        public void delete(String id) {
+        }
+
+        @PreAuthorize("hasRole('ADMIN') or hasRole('AUDITOR')")
+        public void audit() {
+        }
+
+        @PreAuthorize("hasRole('ADMIN')")
+        public void audit(String id) {
+        }
+
+        public void browse() {
+        }
+    }
+}
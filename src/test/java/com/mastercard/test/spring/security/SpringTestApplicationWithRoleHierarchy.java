@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchyImpl;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spring Application configuration class used in the tests.
+ */
+@Configuration
+public class SpringTestApplicationWithRoleHierarchy {
+
+    /**
+     * Provide an instance of RoleHierarchy to help test @ExpandRoleHierarchy.
+     * The number of times the hierarchy is walked is counted.
+     * @return The instance of RoleHierarchy.
+     */
+    @Bean
+    public CountingRoleHierarchy getRoleHierarchy() {
+        CountingRoleHierarchy retVal = new CountingRoleHierarchy();
+        retVal.setHierarchy("ROLE_ADMIN > ROLE_USER\nROLE_USER > ROLE_GUEST");
+        return retVal;
+    }
+
+    /**
+     * A RoleHierarchy that counts the number of times the hierarchy is walked.
+     */
+    public static class CountingRoleHierarchy extends RoleHierarchyImpl implements RoleHierarchy {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Collection<GrantedAuthority> getReachableGrantedAuthorities(Collection<? extends GrantedAuthority> authorities) {
+            count.incrementAndGet();
+            return super.getReachableGrantedAuthorities(authorities);
+        }
+
+        public int getCount() {
+            return count.get();
+        }
+    }
+}
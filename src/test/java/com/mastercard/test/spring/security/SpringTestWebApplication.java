@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.SecurityConfig;
+import org.springframework.security.access.vote.AffirmativeBased;
+import org.springframework.security.access.vote.RoleVoter;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.DefaultSecurityFilterChain;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.security.web.access.ExceptionTranslationFilter;
+import org.springframework.security.web.access.intercept.DefaultFilterInvocationSecurityMetadataSource;
+import org.springframework.security.web.access.intercept.FilterSecurityInterceptor;
+import org.springframework.security.web.authentication.Http403ForbiddenEntryPoint;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+import org.springframework.security.web.context.SecurityContextPersistenceFilter;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+
+/**
+ * Spring Web Application configuration class used in the tests.
+ */
+@Configuration
+@EnableWebMvc
+public class SpringTestWebApplication {
+
+    /**
+     * Provide a Spring Security filter chain equivalent to {@code http.authorizeRequests().antMatchers("/admin/**").hasRole("ADMIN")}
+     * to help test the injected MockMvc and the TestAuthenticationFilter.
+     * @return The instance of FilterChainProxy.
+     * @throws Exception if the filter chain cannot be initialized.
+     */
+    @Bean
+    public FilterChainProxy springSecurityFilterChain() throws Exception {
+        LinkedHashMap<RequestMatcher, Collection<ConfigAttribute>> requestMap = new LinkedHashMap<>();
+        requestMap.put(new AntPathRequestMatcher("/admin/**"), SecurityConfig.createList("ROLE_ADMIN"));
+
+        FilterSecurityInterceptor filterSecurityInterceptor = new FilterSecurityInterceptor();
+        filterSecurityInterceptor.setSecurityMetadataSource(new DefaultFilterInvocationSecurityMetadataSource(requestMap));
+        filterSecurityInterceptor.setAccessDecisionManager(new AffirmativeBased(Arrays.asList(new RoleVoter())));
+        filterSecurityInterceptor.setAuthenticationManager(authentication -> authentication);
+        filterSecurityInterceptor.afterPropertiesSet();
+
+        //HTTP Basic authentication always fails to help test skipping credential based authentication filters
+        BasicAuthenticationFilter basicAuthenticationFilter = new BasicAuthenticationFilter(authentication -> {
+            throw new BadCredentialsException("Bad credentials");
+        }, new Http403ForbiddenEntryPoint());
+
+        return new FilterChainProxy(new DefaultSecurityFilterChain(AnyRequestMatcher.INSTANCE,
+                new SecurityContextPersistenceFilter(),
+                basicAuthenticationFilter,
+                new ExceptionTranslationFilter(new Http403ForbiddenEntryPoint()),
+                filterSecurityInterceptor));
+    }
+
+    /**
+     * Provide an instance of the controller to help test the injected MockMvc.
+     * @return The instance of WhoAmIController.
+     */
+    @Bean
+    public WhoAmIController getWhoAmIController() {
+        return new WhoAmIController();
+    }
+
+    /**
+     * A controller returning the name of the current user.
+     */
+    @RequestMapping
+    public static class WhoAmIController {
+
+        @RequestMapping({"/whoami", "/admin/whoami"})
+        @ResponseBody
+        public String whoAmI() {
+            return SecurityContextHolder.getContext().getAuthentication().getName();
+        }
+    }
+}
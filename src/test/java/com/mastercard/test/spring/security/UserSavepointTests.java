@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Contains test cases that validate usage of @SharedUserFixture with savepoints.
+ */
+@RunWith(SpringSecurityJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {SpringTestApplicationWithDatabase.class})
+@SharedUserFixture(savepoints = true)
+@Transactional
+public class UserSavepointTests {
+
+    private static int setUps;
+    private static final List<String> owners = new ArrayList<>();
+
+    @Rule
+    public LogPrincipalRule logPrincipalRule = new LogPrincipalRule();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() {
+        setUps++;
+        jdbcTemplate.update("INSERT INTO ACCOUNT (OWNER) VALUES (?)", "fixture");
+    }
+
+    @Test
+    @WithMockUser("user1")
+    @WithMockUser("user2")
+    @WithMockUser("user3")
+    public void testChangesOfEachUserAreRolledBack() {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        jdbcTemplate.update("INSERT INTO ACCOUNT (OWNER) VALUES (?)", username);
+
+        List<String> rows = jdbcTemplate.queryForList("SELECT OWNER FROM ACCOUNT ORDER BY OWNER", String.class);
+        assertEquals(2, rows.size());
+        assertEquals("fixture", rows.get(0));
+        assertEquals(username, rows.get(1));
+        owners.add(rows.get(1));
+    }
+
+    @AfterClass
+    public static void verifyFixtureWasSetUpOnce() {
+        assertEquals(1, setUps);
+        assertEquals(3, owners.size());
+    }
+}
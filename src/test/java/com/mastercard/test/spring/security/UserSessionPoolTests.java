@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.MethodSorters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+
+/**
+ * Contains test cases that validate usage of UserSessionPool.
+ */
+@RunWith(SpringSecurityJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = {SpringTestWebApplication.class})
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class UserSessionPoolTests {
+
+    private static final Map<String, String> sessionIds = new HashMap<>();
+
+    @Rule
+    public LogPrincipalRule logPrincipalRule = new LogPrincipalRule();
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private FilterChainProxy springSecurityFilterChain;
+
+    private MockMvc mockMvc;
+
+    @Before
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).addFilters(springSecurityFilterChain).build();
+    }
+
+    @Test
+    @WithMockUser("admin")
+    @WithMockUser("user")
+    public void test1SessionContainsTheSecurityContextOfTheUser() throws Exception {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        MockHttpSession session = UserSessionPool.getSession();
+
+        SecurityContext securityContext = getSecurityContext(session);
+        assertEquals(username, securityContext.getAuthentication().getName());
+        mockMvc.perform(get("/whoami").session(session)).andExpect(content().string(username));
+
+        session.setAttribute("cart", username);
+        sessionIds.put(username, session.getId());
+        securityContext.setAuthentication(null);
+    }
+
+    @Test
+    @WithMockUser("admin")
+    @WithMockUser("user")
+    public void test2SessionIsReusedForTheSameUserAndReset() {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        MockHttpSession session = UserSessionPool.getSession();
+
+        assertEquals(sessionIds.get(username), session.getId());
+        assertNull(session.getAttribute("cart"));
+        assertEquals(username, getSecurityContext(session).getAuthentication().getName());
+
+        //the session is returned to the pool without modified attributes
+        getSecurityContext(session).setAuthentication(null);
+    }
+
+    @Test
+    @WithMockUser("admin")
+    public void test3InvalidatedSessionIsNotReused() {
+        MockHttpSession session = UserSessionPool.getSession();
+        assertEquals(sessionIds.get("admin"), session.getId());
+        assertEquals("admin", getSecurityContext(session).getAuthentication().getName());
+
+        session.invalidate();
+        sessionIds.put("admin", session.getId());
+    }
+
+    @Test
+    @WithMockUser("admin")
+    public void test4NewSessionReplacesInvalidatedSession() {
+        assertFalse(sessionIds.get("admin").equals(UserSessionPool.getSession().getId()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test5SessionRequiresUser() {
+        UserSessionPool.getSession();
+    }
+
+    @Test
+    public void test6SessionsAreDiscardedAfterTheTestClass() throws Exception {
+        RunNotifier notifier = new RunNotifier();
+        Result result = new Result();
+        notifier.addListener(result.createListener());
+        new SpringSecurityJUnit4ClassRunner(MockPooledSessionTest.class).run(notifier);
+
+        assertEquals(0, result.getFailureCount());
+        assertEquals(0, UserSessionPool.size(MockPooledSessionTest.class));
+    }
+
+    private SecurityContext getSecurityContext(MockHttpSession session) {
+        return (SecurityContext) session.getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY);
+    }
+
+    @AfterClass
+    public static void verifySessionsWereTracked() {
+        assertEquals(2, sessionIds.size());
+    }
+
+    /**
+     * Test Class used in testing that pooled sessions are discarded.
+     */
+    @WebAppConfiguration
+    @ContextConfiguration(classes = {SpringTestWebApplication.class})
+    @FixMethodOrder(MethodSorters.NAME_ASCENDING)
+    public static class MockPooledSessionTest {
+
+        @Test
+        @WithMockUser("admin")
+        @WithMockUser("user")
+        public void testSession() {
+            assertNotNull(UserSessionPool.getSession());
+        }
+
+        @Test
+        @WithMockUser("admin")
+        public void testSessionIsPooled() {
+            //the sessions of admin and user are pooled while the test class runs
+            assertEquals(2, UserSessionPool.size(MockPooledSessionTest.class));
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import com.mastercard.test.spring.security.SpringTestApplicationWithMethodSecurity.SecuredService;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.MethodSorters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.security.access.AccessDecisionManager;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.event.AuthenticationCredentialsNotFoundEvent;
+import org.springframework.security.access.event.AuthorizationFailureEvent;
+import org.springframework.security.access.intercept.aopalliance.MethodSecurityInterceptor;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Contains test cases that validate usage of @VerifyAuthorization.
+ */
+@RunWith(SpringSecurityJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {SpringTestApplicationWithMethodSecurity.class})
+@WithOtherRolesDenied(roles = {"USER", "ADMIN", "AUDITOR"})
+public class VerifyAuthorizationTests {
+
+    @Rule
+    public LogPrincipalRule logPrincipalRule = new LogPrincipalRule();
+
+    @Test
+    @WithMockUser(roles = {"ADMIN"})
+    @VerifyAuthorization(type = SecuredService.class, method = "delete")
+    public void securedMethodIsOnlyGrantedToAdmin() {
+        fail("The test method should not be executed");
+    }
+
+    @Test
+    @WithMockUser(roles = {"ADMIN"})
+    @WithMockUser(roles = {"AUDITOR"})
+    @VerifyAuthorization(type = SecuredService.class, method = "audit")
+    public void preAuthorizeMethodIsGrantedToAdminAndAuditor() {
+        fail("The test method should not be executed");
+    }
+
+    @Test
+    @WithMockUser(roles = {"ADMIN"})
+    @VerifyAuthorization(type = SecuredService.class, method = "audit", parameterTypes = {String.class})
+    public void overloadedMethodIsSelectedByParameterTypes() {
+        fail("The test method should not be executed");
+    }
+
+    @Test
+    public void mismatchedExpectationIsReportedAsFailure() throws Exception {
+        SpringSecurityJUnit4ClassRunner runner = new SpringSecurityJUnit4ClassRunner(MockVerifyAuthorizationTest.class);
+
+        List<Failure> failures = new ArrayList<>();
+        RunNotifier notifier = new RunNotifier();
+        notifier.addListener(new RunListener() {
+            @Override
+            public void testFailure(Failure failure) {
+                failures.add(failure);
+            }
+        });
+        runner.run(notifier);
+
+        //the AUDITOR user is expected to be granted access to delete(), the ADMIN user and the
+        //public browse() method match the expectations
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(0).getMessage().contains("granted"));
+        assertTrue(failures.get(0).getMessage().contains("AUDITOR"));
+    }
+
+    @Test
+    public void reloadedContextIsVerified() throws Exception {
+        SpringSecurityJUnit4ClassRunner runner = new SpringSecurityJUnit4ClassRunner(MockReloadedContextTest.class);
+
+        List<Object> targets = new ArrayList<>();
+        List<Failure> failures = new ArrayList<>();
+        RunNotifier notifier = new RunNotifier();
+        notifier.addListener(new RunListener() {
+            @Override
+            public void testFailure(Failure failure) {
+                failures.add(failure);
+            }
+
+            @Override
+            public void testFinished(Description description) {
+                if (description.getMethodName().startsWith("test3VerifyAfterReload")) {
+                    for (ApplicationEvent event : SecurityEventRecorder.getEvents()) {
+                        targets.add(((MethodInvocation) event.getSource()).getThis());
+                    }
+                }
+            }
+        });
+        runner.run(notifier);
+
+        assertEquals(0, failures.size());
+        assertEquals(1, targets.size());
+        assertSame(MockReloadedContextTest.reloadedService, targets.get(0));
+    }
+
+    @Test
+    public void missingAuthenticationPublishesEvent() throws Exception {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(SpringTestApplicationWithMethodSecurity.class)) {
+            SecurityEventRecorder.register(context);
+            SecurityEventRecorder.clear();
+
+            AuthorizationVerifier verifier = new AuthorizationVerifier(context);
+            assertFalse(verifier.isGranted(null, SecuredService.class.getMethod("audit"), SecuredService.class));
+            SecurityEventRecorder.assertCount(AuthenticationCredentialsNotFoundEvent.class, 1);
+        } finally {
+            SecurityEventRecorder.clear();
+        }
+    }
+
+    @Test
+    public void authenticationExceptionPublishesAuthorizationFailureEvent() throws Exception {
+        MethodSecurityInterceptor interceptor = new SpringTestApplicationWithMethodSecurity().getMethodSecurityInterceptor();
+        interceptor.setAccessDecisionManager(new AccessDecisionManager() {
+            @Override
+            public void decide(Authentication authentication, Object object, Collection<ConfigAttribute> attributes) {
+                throw new InsufficientAuthenticationException("Full authentication is required");
+            }
+
+            @Override
+            public boolean supports(ConfigAttribute attribute) {
+                return true;
+            }
+
+            @Override
+            public boolean supports(Class<?> clazz) {
+                return true;
+            }
+        });
+
+        try (GenericApplicationContext context = new GenericApplicationContext()) {
+            context.getBeanFactory().registerSingleton("interceptor", interceptor);
+            context.refresh();
+            SecurityEventRecorder.register(context);
+            SecurityEventRecorder.clear();
+
+            AuthorizationVerifier verifier = new AuthorizationVerifier(context);
+            Authentication authentication = new TestingAuthenticationToken("user", "password", "ROLE_ADMIN");
+            assertFalse(verifier.isGranted(authentication, SecuredService.class.getMethod("audit"), SecuredService.class));
+            SecurityEventRecorder.assertAccessDenied(1);
+            assertTrue(((AuthorizationFailureEvent) SecurityEventRecorder.getEvents().get(0)).getAccessDeniedException().getCause()
+                    instanceof InsufficientAuthenticationException);
+        } finally {
+            SecurityEventRecorder.clear();
+        }
+    }
+
+    /**
+     * Test Class used in testing @VerifyAuthorization.
+     */
+    @RunWith(SpringSecurityJUnit4ClassRunner.class)
+    @ContextConfiguration(classes = {SpringTestApplicationWithMethodSecurity.class})
+    public static class MockVerifyAuthorizationTest {
+
+        @Test
+        @WithMockUser(roles = {"ADMIN"})
+        @WithMockUser(roles = {"AUDITOR"})
+        @VerifyAuthorization(type = SecuredService.class, method = "delete")
+        public void testDelete() {
+        }
+
+        @Test
+        @WithMockUser(roles = {"USER"})
+        @VerifyAuthorization(type = SecuredService.class, method = "browse")
+        public void testBrowse() {
+        }
+    }
+
+    /**
+     * Test Class used in testing that @VerifyAuthorization uses the ApplicationContext reloaded by @DirtiesContext.
+     */
+    @RunWith(SpringSecurityJUnit4ClassRunner.class)
+    @ContextConfiguration(classes = {SpringTestApplicationWithMethodSecurity.class})
+    @FixMethodOrder(MethodSorters.NAME_ASCENDING)
+    public static class MockReloadedContextTest {
+
+        private static Object reloadedService;
+
+        @Autowired
+        private SecuredService securedService;
+
+        @Test
+        @WithMockUser(roles = {"ADMIN"})
+        @VerifyAuthorization(type = SecuredService.class, method = "delete")
+        public void test1VerifyBeforeReload() {
+        }
+
+        @Test
+        @WithMockUser
+        @DirtiesContext
+        public void test2DirtyContext() {
+        }
+
+        @Test
+        @WithMockUser(roles = {"ADMIN"})
+        @VerifyAuthorization(type = SecuredService.class, method = "delete")
+        public void test3VerifyAfterReload() {
+        }
+
+        @Test
+        @WithMockUser
+        public void test4CaptureReloadedService() {
+            reloadedService = securedService;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.SpringSecurityTestBootstrapUtils;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.TestContextManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Contains test cases that validate usage of @WarmUpApplicationContext.
+ */
+@RunWith(SpringSecurityJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {SpringTestApplication.class})
+@WarmUpApplicationContext
+public class WarmUpApplicationContextTests {
+
+    @Rule
+    public LogPrincipalRule logPrincipalRule = new LogPrincipalRule();
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    @WithMockUser("user1")
+    @WithMockUser("user2")
+    public void testContextIsAvailable() {
+        assertNotNull(context);
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    public void testContextIsLoadedOnBackgroundThread() throws Exception {
+        TestContext testContext = SpringSecurityTestBootstrapUtils.getTestContext(new TestContextManager(WarmedUpTest.class));
+        ApplicationContextWarmUp warmUp = new ApplicationContextWarmUp(testContext);
+
+        //the context is not loaded until the warm-up is started by the test class run before it
+        Thread.sleep(100);
+        assertNull(WarmedUpConfiguration.loadingThread);
+
+        warmUp.start();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (WarmedUpConfiguration.loadingThread == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        warmUp.await();
+
+        assertEquals(ApplicationContextWarmUp.THREAD_NAME, WarmedUpConfiguration.loadingThread);
+        assertNotNull(testContext.getApplicationContext().getBean("loadingThread"));
+    }
+
+    @Test
+    public void testContextDirtiedBeforeClassIsNotWarmedUp() {
+        assertTrue(ApplicationContextWarmUp.isEnabled(WarmUpApplicationContextTests.class));
+        assertFalse(ApplicationContextWarmUp.isEnabled(DirtiedBeforeClassTest.class));
+        assertFalse(ApplicationContextWarmUp.isEnabled(WarmedUpTest.class));
+    }
+
+    @ContextConfiguration(classes = {WarmedUpConfiguration.class})
+    public static class WarmedUpTest {
+    }
+
+    @WarmUpApplicationContext
+    @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+    @ContextConfiguration(classes = {SpringTestApplication.class})
+    public static class DirtiedBeforeClassTest {
+    }
+
+    @Configuration
+    public static class WarmedUpConfiguration {
+
+        private static volatile String loadingThread;
+
+        @Bean
+        public String loadingThread() {
+            loadingThread = Thread.currentThread().getName();
+            return loadingThread;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.model.FrameworkMethod;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Contains test cases that validate usage of @WithAllUserDetails.
+ */
+@RunWith(SpringSecurityJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {SpringTestApplication.class})
+public class WithAllUserDetailsTests {
+
+    private static final Set<String> executedUsers = new HashSet<>();
+
+    @Rule
+    public LogPrincipalRule logPrincipalRule = new LogPrincipalRule();
+
+    @AfterClass
+    public static void everyMatchingUserWasExecuted() {
+        assertEquals(100, executedUsers.size());
+    }
+
+    @Test
+    @WithAllUserDetails(source = InMemoryUserDetailsEnumerator.class, filter = "user1.*")
+    public void testWithAllUserDetailsExecutesEachMatchingUser() {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        assertTrue(username.startsWith("user1"));
+        assertTrue(executedUsers.add(username));
+    }
+
+    @Test
+    public void variantsAreRequestedOnePageAtATime() throws Exception {
+        WithAllUserDetails withAllUserDetails = WithAllUserDetailsTests.class
+                .getMethod("testWithAllUserDetailsExecutesEachMatchingUser").getAnnotation(WithAllUserDetails.class);
+        InMemoryUserDetailsEnumerator enumerator = new InMemoryUserDetailsEnumerator();
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("enumerator", enumerator);
+
+        Iterator<Annotation> variants = new WithAllUserDetailsVariantsFactory(beanFactory).createUserVariants(withAllUserDetails);
+
+        //user000-user099 are filtered, so the first match requires a second page
+        assertTrue(variants.hasNext());
+        assertEquals("user100", ((WithUserDetails) variants.next()).value());
+        assertEquals(2, enumerator.getPagesRequested());
+
+        List<String> usernames = new ArrayList<>();
+        usernames.add("user100");
+        while (variants.hasNext()) {
+            usernames.add(((WithUserDetails) variants.next()).value());
+        }
+        assertEquals(100, usernames.size());
+        assertEquals(3, enumerator.getPagesRequested());
+    }
+
+    @Test
+    public void variantsAreExpandedOncePerRunner() throws Exception {
+        SpringSecurityJUnit4ClassRunner runner = new SpringSecurityJUnit4ClassRunner(WithAllUserDetailsTests.class);
+        List<FrameworkMethod> children = runner.getChildren();
+        runner.getDescription();
+
+        assertSame(children, runner.getChildren());
+        assertEquals(102, children.size());
+    }
+
+    /**
+     * A UserDetailsEnumerator over 250 generated usernames, standing in for a user store.
+     */
+    public static class InMemoryUserDetailsEnumerator implements UserDetailsEnumerator {
+        private static final int USER_COUNT = 250;
+
+        private int pagesRequested;
+
+        @Override
+        public List<String> findUsernames(String afterUsername, int pageSize) {
+            pagesRequested++;
+
+            int start = afterUsername == null ? 0 : Integer.parseInt(afterUsername.substring(4)) + 1;
+            List<String> retVal = new ArrayList<>();
+            for (int i = start; i < USER_COUNT && retVal.size() < pageSize; i++) {
+                retVal.add(String.format("user%03d", i));
+            }
+            return retVal;
+        }
+
+        public int getPagesRequested() {
+            return pagesRequested;
+        }
+    }
+}
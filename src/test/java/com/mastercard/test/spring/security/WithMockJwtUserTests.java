@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Signature;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Contains test cases that validate usage of @WithMockJwtUser.
+ */
+@RunWith(SpringSecurityJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {SpringTestApplication.class})
+public class WithMockJwtUserTests {
+
+    @Rule
+    public LogPrincipalRule logPrincipalRule = new LogPrincipalRule();
+
+    @Test
+    @WithMockJwtUser(value = "alice", roles = {"ADMIN"}, scopes = {"read", "write"}, audience = "accounts")
+    public void tokenContainsTheClaimsOfTheUser() throws Exception {
+        MockJwtAuthenticationToken authentication = (MockJwtAuthenticationToken) SecurityContextHolder.getContext().getAuthentication();
+
+        assertEquals("alice", authentication.getName());
+        assertEquals(new HashSet<>(AuthorityUtils.createAuthorityList("ROLE_ADMIN", "SCOPE_read", "SCOPE_write")),
+                new HashSet<>(authentication.getAuthorities()));
+        assertEquals("Bearer " + authentication.getToken(), authentication.getAuthorizationHeader());
+
+        String[] parts = authentication.getToken().split("\\.");
+        String header = new String(Base64.getUrlDecoder().decode(parts[0]), StandardCharsets.UTF_8);
+        String payload = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+        assertTrue(header.contains("\"alg\":\"RS256\""));
+        assertTrue(payload.startsWith("{\"sub\":\"alice\",\"iss\":\"" + MockJwtTokens.DEFAULT_ISSUER + "\",\"aud\":\"accounts\","
+                + "\"scope\":\"read write\",\"authorities\":[\"ROLE_ADMIN\"],\"iat\":"));
+
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initVerify(MockJwtTokens.getPublicKey());
+        signature.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+        assertTrue(signature.verify(Base64.getUrlDecoder().decode(parts[2])));
+    }
+
+    @Test
+    @WithMockJwtUser("bob")
+    @WithMockJwtUser("bob")
+    @WithMockJwtUser(value = "bob", authorities = {"ROLE_USER"})
+    public void tokenIsSignedOncePerIdentity() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        long signed = MockJwtTokens.getSignedCount();
+
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("sub", "bob");
+        claims.put("iss", MockJwtTokens.DEFAULT_ISSUER);
+        claims.put("authorities", Arrays.asList("ROLE_USER"));
+
+        //roles = {"USER"} and authorities = {"ROLE_USER"} result in the same claims
+        assertEquals(authentication.getCredentials(), MockJwtTokens.getToken(claims));
+        assertEquals(signed, MockJwtTokens.getSignedCount());
+    }
+
+    @Test
+    @WithMockJwtUser("carol")
+    public void differentClaimsAreSignedSeparately() {
+        long signed = MockJwtTokens.getSignedCount();
+
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("sub", "carol");
+        claims.put("iss", "https://other.test");
+
+        assertFalse(SecurityContextHolder.getContext().getAuthentication().getCredentials().equals(MockJwtTokens.getToken(claims)));
+        assertEquals(signed + 1, MockJwtTokens.getSignedCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rolesCannotBeCombinedWithAuthorities() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("value", "dave");
+        attributes.put("roles", new String[] {"ADMIN"});
+        attributes.put("authorities", new String[] {"ROLE_USER"});
+        WithMockJwtUser withMockJwtUser = AnnotationUtils.synthesizeAnnotation(attributes, WithMockJwtUser.class, null);
+
+        new WithMockJwtUserSecurityContextFactory().createSecurityContext(withMockJwtUser);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.InitializationError;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Contains test cases that validate usage of @WithMockUserMatrix.
+ */
+@RunWith(SpringSecurityJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {SpringTestApplication.class})
+public class WithMockUserMatrixTests {
+
+    private static final Set<Set<String>> executedRoleSets = new HashSet<>();
+
+    @Rule
+    public LogPrincipalRule logPrincipalRule = new LogPrincipalRule();
+
+    @AfterClass
+    public static void allCombinationsWereExecuted() {
+        //C(3,1) + C(3,2) combinations of A, B and C
+        assertEquals(6, executedRoleSets.size());
+    }
+
+    @Test
+    @WithMockUserMatrix(roles = {"A", "B", "C"}, maxRoles = 2)
+    public void testWithRoleMatrixExecutesEachCombination() {
+        Set<String> roles = new HashSet<>();
+        for (GrantedAuthority authority : SecurityContextHolder.getContext().getAuthentication().getAuthorities()) {
+            roles.add(authority.getAuthority());
+        }
+
+        assertEquals("user", SecurityContextHolder.getContext().getAuthentication().getName());
+        assertTrue(roles.size() >= 1 && roles.size() <= 2);
+        assertTrue(executedRoleSets.add(roles));
+    }
+
+    @Test
+    @WithMockUserMatrix(roles = {"A", "B", "C", "D", "E", "F"}, minRoles = 0, strength = 2, seed = 7)
+    public void testWithPairwiseRoleMatrixExecutesWithMockUsers() {
+        assertEquals("user", SecurityContextHolder.getContext().getAuthentication().getName());
+    }
+
+    @Test
+    public void getChildrenExpandsMatrixIntoWithMockUserVariants() throws Exception {
+        SpringSecurityJUnit4ClassRunner runner = new SpringSecurityJUnit4ClassRunner(WithMockUserMatrixTests.class);
+
+        List<List<String>> actualRoles = new ArrayList<>();
+        for (FrameworkMethod child : runner.getChildren()) {
+            if (child instanceof AnnotationFrameworkMethod && "testWithRoleMatrixExecutesEachCombination".equals(child.getName())) {
+                WithMockUser withMockUser = (WithMockUser) ((AnnotationFrameworkMethod) child).getAnnotation();
+                actualRoles.add(Arrays.asList(withMockUser.roles()));
+            }
+        }
+
+        List<List<String>> expectedRoles = Arrays.asList(
+                Arrays.asList("A"), Arrays.asList("B"), Arrays.asList("C"),
+                Arrays.asList("A", "B"), Arrays.asList("A", "C"), Arrays.asList("B", "C"));
+        assertEquals(expectedRoles, actualRoles);
+    }
+
+    @Test
+    public void roleCombinationsSupportsEmptyAndFullRoleSets() {
+        int count = 0;
+        for (String[] combination : new RoleCombinations(new String[] {"A", "B", "C", "D"}, 0, 4)) {
+            count++;
+        }
+
+        assertEquals(16, count);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void roleCombinationsRejectsMaxRolesLessThanMinRoles() {
+        new RoleCombinations(new String[] {"A", "B"}, 2, 1);
+    }
+
+    @Test
+    public void invalidMatrixIsReportedAsInitializationError() {
+        try {
+            new SpringSecurityJUnit4ClassRunner(MockInvalidMatrixTest.class);
+            fail("Expected InitializationError");
+        } catch (InitializationError e) {
+            assertEquals(2, e.getCauses().size());
+        }
+    }
+
+    @Test
+    public void invalidMatrixIsReportedAsInitializationErrorWithoutSpring() {
+        try {
+            new SecurityJUnit4ClassRunner(MockInvalidMatrixTest.class);
+            fail("Expected InitializationError");
+        } catch (InitializationError e) {
+            assertEquals(2, e.getCauses().size());
+        }
+    }
+
+    /**
+     * Test Class used in testing the validation of @WithMockUserMatrix.
+     */
+    @ContextConfiguration(classes = {SpringTestApplication.class})
+    public static class MockInvalidMatrixTest {
+
+        @Test
+        @WithMockUserMatrix(roles = {"A", "B"}, minRoles = 2, maxRoles = 1)
+        public void testInvalidBounds() {
+        }
+
+        @Test
+        @WithMockUserMatrix(roles = {"A", "B"}, strength = 3)
+        public void testInvalidStrength() {
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.RunWith;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Contains test cases that validate usage of @WithMockUser when a RoleHierarchy
+ * bean is present in the Spring application configuration.
+ */
+@RunWith(SpringSecurityJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {SpringTestApplicationWithRoleHierarchy.class})
+public class WithMockUserRoleHierarchyTests {
+
+    @Rule
+    public LogPrincipalRule logPrincipalRule = new LogPrincipalRule();
+
+    @Test
+    @ExpandRoleHierarchy
+    @WithMockUser(roles = {"ADMIN"})
+    public void testWithExpandedRoleHierarchyGrantsReachableRoles() {
+        assertEquals(3, SecurityContextHolder.getContext().getAuthentication().getAuthorities().size());
+        assertTrue(getAuthorities().contains("ROLE_GUEST"));
+    }
+
+    @Test
+    @WithMockUser(roles = {"ADMIN"})
+    public void testWithoutExpandedRoleHierarchyGrantsDeclaredRoles() {
+        assertEquals(1, SecurityContextHolder.getContext().getAuthentication().getAuthorities().size());
+    }
+
+    @Test
+    @ExpandRoleHierarchy
+    @WithMockUser(roles = {"USER"})
+    @WithMockUser(roles = {"USER"}, username = "other")
+    public void testWithExpandedRoleHierarchyGrantsReachableRolesToEachUser() {
+        assertEquals(2, getAuthorities().size());
+        assertTrue(getAuthorities().contains("ROLE_GUEST"));
+    }
+
+    @Test
+    public void reachableAuthoritiesAreResolvedOncePerAuthorities() throws Exception {
+        WithMockUser withMockUser = WithMockUserRoleHierarchyTests.class
+                .getMethod("testWithExpandedRoleHierarchyGrantsReachableRoles").getAnnotation(WithMockUser.class);
+        SpringTestApplicationWithRoleHierarchy.CountingRoleHierarchy hierarchy = new SpringTestApplicationWithRoleHierarchy().getRoleHierarchy();
+        WithMockUserSecurityContextFactory factory = new WithMockUserSecurityContextFactory();
+        factory.setRoleHierarchy(hierarchy);
+
+        List<GrantedAuthority> first = factory.findReachableAuthorities(withMockUser,
+                new ArrayList<>(Collections.singletonList(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+        List<GrantedAuthority> second = factory.findReachableAuthorities(withMockUser,
+                new ArrayList<>(Collections.singletonList(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+
+        assertSame(first, second);
+        assertEquals(3, first.size());
+        assertEquals(1, hierarchy.getCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void factoryRequiresRoleHierarchyToExpand() throws Exception {
+        WithMockUser withMockUser = WithMockUserRoleHierarchyTests.class
+                .getMethod("testWithExpandedRoleHierarchyGrantsReachableRoles").getAnnotation(WithMockUser.class);
+        new WithMockUserSecurityContextFactory().createSecurityContext(withMockUser, true);
+    }
+
+    @Test
+    public void expandRoleHierarchyDoesNotChangeTheUserDescription() throws Exception {
+        Description description = new SpringSecurityJUnit4ClassRunner(WithMockUserRoleHierarchyTests.class).getDescription();
+
+        for (Description method : description.getChildren()) {
+            for (Description user : method.getChildren()) {
+                assertFalse(user.getDisplayName(), user.getDisplayName().contains("expandRoleHierarchy"));
+            }
+        }
+    }
+
+    private Set<String> getAuthorities() {
+        Set<String> retVal = new HashSet<>();
+        for (GrantedAuthority authority : SecurityContextHolder.getContext().getAuthentication().getAuthorities()) {
+            retVal.add(authority.getAuthority());
+        }
+        return retVal;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Contains test cases that validate usage of @WithMockUsersFrom.
+ */
+@RunWith(SpringSecurityJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {SpringTestApplication.class})
+public class WithMockUsersFromTests {
+
+    private static final Set<String> executedUsers = new HashSet<>();
+
+    @Rule
+    public LogPrincipalRule logPrincipalRule = new LogPrincipalRule();
+
+    @AfterClass
+    public static void everyUserWasExecuted() {
+        assertEquals(3, executedUsers.size());
+    }
+
+    @Test
+    @WithMockUsersFrom("classpath:users.csv")
+    public void testWithMockUsersFromExecutesEachUser() {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        assertTrue(executedUsers.add(username));
+        assertEquals(username + "password", SecurityContextHolder.getContext().getAuthentication().getCredentials());
+    }
+
+    @Test
+    public void userCatalogSkipsBlankLinesAndComments() {
+        UserCatalog catalog = UserCatalog.forLocation("classpath:users.csv");
+
+        assertEquals(3, catalog.size());
+        assertEquals("admin", catalog.getUser(0).getUsername());
+        assertEquals("auditor", catalog.getUser(1).getUsername());
+        assertEquals("guest", catalog.getUser(2).getUsername());
+    }
+
+    @Test
+    public void userCatalogParsesAuthorities() {
+        UserDetails admin = UserCatalog.forLocation("classpath:users.csv").getUser(0);
+
+        Iterator<? extends GrantedAuthority> authorities = admin.getAuthorities().iterator();
+        assertEquals("ROLE_ADMIN", authorities.next().getAuthority());
+        assertEquals("ROLE_USER", authorities.next().getAuthority());
+        assertEquals(0, UserCatalog.forLocation("classpath:users.csv").getUser(2).getAuthorities().size());
+    }
+
+    @Test
+    public void userCatalogIsIndexedOncePerLocation() {
+        assertSame(UserCatalog.forLocation("classpath:users.csv"), UserCatalog.forLocation("classpath:users.csv"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void userCatalogRejectsMissingResource() {
+        UserCatalog.forLocation("classpath:missing-users.csv");
+    }
+
+    @Test
+    public void securityContextFactoryIgnoresAnnotationWithoutRow() throws Exception {
+        WithMockUsersFrom withMockUsersFrom = WithMockUsersFromTests.class
+                .getMethod("testWithMockUsersFromExecutesEachUser").getAnnotation(WithMockUsersFrom.class);
+        assertNull(new WithMockUsersFromSecurityContextFactory().createSecurityContext(withMockUsersFrom));
+    }
+}
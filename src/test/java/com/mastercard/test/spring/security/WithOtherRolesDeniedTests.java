@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.FrameworkMethod;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Contains test cases that validate usage of @WithOtherRolesDenied.
+ */
+@RunWith(SpringSecurityJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {SpringTestApplication.class})
+@WithOtherRolesDenied(roles = {"USER", "ADMIN", "AUDITOR", "ISSUER"})
+public class WithOtherRolesDeniedTests {
+
+    @Rule
+    public LogPrincipalRule logPrincipalRule = new LogPrincipalRule();
+
+    @Test
+    @WithMockUser(roles = {"ADMIN"})
+    public void runningWithPermittedUserExecutesWithDeniedUsersForOtherRoles() {
+        requireRole("ROLE_ADMIN");
+    }
+
+    @Test
+    @WithMockUser(roles = {"ADMIN"})
+    @WithMockUser(roles = {"AUDITOR"})
+    @WithOtherRolesDenied(roles = {"ADMIN", "AUDITOR", "ISSUER"})
+    public void runningWithMethodLevelRolesPrunesEquivalentRoleSets() {
+        requireRole("ROLE_ADMIN", "ROLE_AUDITOR");
+    }
+
+    @Test
+    @WithPersona("auditor")
+    public void runningWithPersonaDeniesRolesNotGrantedToThePersona() {
+        requireRole("ROLE_USER", "ROLE_AUDITOR");
+    }
+
+    @Test
+    public void testWithoutUserHasNoDeniedUsers() {
+        assertTrue(true);
+    }
+
+    @Test
+    public void getChildrenAddsDeniedVariants() throws Exception {
+        SpringSecurityJUnit4ClassRunner runner = new SpringSecurityJUnit4ClassRunner(WithOtherRolesDeniedTests.class);
+
+        List<List<String>> deniedRoles = new ArrayList<>();
+        List<List<String>> prunedRoles = new ArrayList<>();
+        List<List<String>> personaRoles = new ArrayList<>();
+        int withoutUser = 0;
+        for (FrameworkMethod child : runner.getChildren()) {
+            if (child instanceof AccessDeniedFrameworkMethod) {
+                WithMockUser withMockUser = (WithMockUser) ((AccessDeniedFrameworkMethod) child).getAnnotation();
+                if ("runningWithPermittedUserExecutesWithDeniedUsersForOtherRoles".equals(child.getName())) {
+                    deniedRoles.add(Arrays.asList(withMockUser.roles()));
+                } else if ("runningWithPersonaDeniesRolesNotGrantedToThePersona".equals(child.getName())) {
+                    personaRoles.add(Arrays.asList(withMockUser.roles()));
+                } else {
+                    prunedRoles.add(Arrays.asList(withMockUser.roles()));
+                }
+            } else if ("testWithoutUserHasNoDeniedUsers".equals(child.getName())) {
+                withoutUser++;
+            }
+        }
+
+        assertEquals(Arrays.asList(Arrays.asList("USER"), Arrays.asList("AUDITOR"), Arrays.asList("ISSUER"),
+                Arrays.asList("USER", "AUDITOR", "ISSUER")), deniedRoles);
+        //the role set of all denied roles is equivalent to the single denied role
+        assertEquals(Arrays.asList(Arrays.asList("ISSUER")), prunedRoles);
+        //the roles granted by the persona are permitted
+        assertEquals(Arrays.asList(Arrays.asList("ADMIN"), Arrays.asList("ISSUER"), Arrays.asList("ADMIN", "ISSUER")), personaRoles);
+        assertEquals(1, withoutUser);
+    }
+
+    @Test
+    public void getDescriptionDoesNotLoadTheApplicationContext() throws Exception {
+        SpringSecurityJUnit4ClassRunner runner = new SpringSecurityJUnit4ClassRunner(MockUnloadableContextTest.class);
+
+        //the permitted ADMIN user and a denied user for each of USER and AUDITOR and for both
+        assertEquals(4, runner.getDescription().getChildren().get(0).getChildren().size());
+
+        Result result = new Result();
+        RunNotifier notifier = new RunNotifier();
+        notifier.addListener(result.createListener());
+        runner.run(notifier);
+        assertTrue(result.getFailureCount() > 0);
+    }
+
+    private void requireRole(String... roles) {
+        for (GrantedAuthority authority : SecurityContextHolder.getContext().getAuthentication().getAuthorities()) {
+            if (Arrays.asList(roles).contains(authority.getAuthority())) {
+                return;
+            }
+        }
+        throw new AccessDeniedException("Access is denied");
+    }
+
+    /**
+     * Test Class used in testing @WithOtherRolesDenied with an ApplicationContext that cannot be loaded.
+     */
+    @ContextConfiguration(classes = {UnloadableConfiguration.class})
+    @WithOtherRolesDenied(roles = {"USER", "ADMIN", "AUDITOR"})
+    public static class MockUnloadableContextTest {
+
+        @Test
+        @WithMockUser(roles = {"ADMIN"})
+        public void test() {
+        }
+    }
+
+    /**
+     * Configuration that fails to load.
+     */
+    @Configuration
+    public static class UnloadableConfiguration {
+
+        @Bean
+        public Object unloadable() {
+            throw new IllegalStateException("The ApplicationContext cannot be loaded");
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2016 Mastercard Worldwide
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mastercard.test.spring.security;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Contains test cases that validate usage of @WithPersona.
+ */
+@RunWith(SpringSecurityJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {SpringTestApplication.class})
+public class WithPersonaTests {
+
+    @Rule
+    public LogPrincipalRule logPrincipalRule = new LogPrincipalRule();
+
+    @Test
+    @WithPersona("auditor")
+    public void testWithPersonaUsesPersonaDefinition() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertEquals("audit", authentication.getName());
+        assertEquals("auditpassword", authentication.getCredentials());
+        assertEquals(2, authentication.getAuthorities().size());
+    }
+
+    @Test
+    @WithPersona("guest")
+    public void testWithPersonaUsesDefaults() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertEquals("guest", authentication.getName());
+        assertEquals("ROLE_USER", authentication.getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    @WithPersona("admin")
+    @WithPersona("auditor")
+    public void testWithTwoPersonasUsesEitherPersona() {
+        String name = SecurityContextHolder.getContext().getAuthentication().getName();
+        assertTrue("admin".equals(name) || "audit".equals(name));
+    }
+
+    @Test
+    public void registryBuildsAuthorities() {
+        Set<String> authorities = new HashSet<>();
+        for (GrantedAuthority authority : PersonaRegistry.forLocation(PersonaRegistry.DEFAULT_LOCATION).getAuthentication("admin").getAuthorities()) {
+            authorities.add(authority.getAuthority());
+        }
+
+        assertTrue(authorities.contains("ROLE_USER"));
+        assertTrue(authorities.contains("ROLE_ADMIN"));
+        assertEquals(3, PersonaRegistry.forLocation(PersonaRegistry.DEFAULT_LOCATION).getNames().size());
+    }
+
+    @Test
+    public void registryIsLoadedOnce() {
+        assertSame(PersonaRegistry.forLocation(PersonaRegistry.DEFAULT_LOCATION), PersonaRegistry.forLocation(PersonaRegistry.DEFAULT_LOCATION));
+    }
+
+    @Test
+    public void registryReturnsNewAuthenticationForEachLookup() {
+        PersonaRegistry registry = PersonaRegistry.forLocation(PersonaRegistry.DEFAULT_LOCATION);
+        Authentication first = registry.getAuthentication("auditor");
+        Authentication second = registry.getAuthentication("auditor");
+
+        assertNotSame(first, second);
+        assertNotSame(first.getPrincipal(), second.getPrincipal());
+        assertEquals(first, second);
+
+        ((CredentialsContainer) first).eraseCredentials();
+        assertEquals(second.getCredentials(), registry.getAuthentication("auditor").getCredentials());
+        assertEquals(second.getCredentials(), ((User) registry.getAuthentication("auditor").getPrincipal()).getPassword());
+    }
+
+    @Test
+    public void factoryReturnsNewSecurityContextForEachTest() {
+        WithPersona withPersona = AnnotationUtils.synthesizeAnnotation(Collections.singletonMap("value", (Object) "auditor"), WithPersona.class, null);
+        WithPersonaSecurityContextFactory factory = new WithPersonaSecurityContextFactory();
+        SecurityContext first = factory.createSecurityContext(withPersona);
+        SecurityContext second = factory.createSecurityContext(withPersona);
+
+        assertNotSame(first, second);
+        assertNotSame(first.getAuthentication(), second.getAuthentication());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void registryRejectsUnknownPersona() {
+        PersonaRegistry.forLocation(PersonaRegistry.DEFAULT_LOCATION).getAuthentication("unknown");
+    }
+}